@@ -0,0 +1,251 @@
+package readSimulator.benchmarks;
+
+import org.apache.commons.cli.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*
+Runs the whole simulator in a child JVM for every combination of dataset size and generator thread count and appends
+one tab separated line per run to the results file: wall time, reads/sec, the phase timings from the simulator's
+metrics report (-metrics) and the peak resident set size of the child. Datasets come from SyntheticDatasetGenerator
+and are reused between runs, the simulated FASTQ files are deleted after every run.
+
+Phase columns are -1 when the simulator did not run that phase (e.g. merge without -concat), all report columns are
+-1 when the simulator failed before writing its report, peak_rss_kb is -1 where /proc is not available.
+ */
+public class EndToEndBenchmark {
+    private static final String[] COLUMNS = {"timestamp", "dataset_reads", "transcripts", "threads", "repeat", "exit_code",
+            "wall_ms", "reads", "reads_per_sec", "parse_gtf_ms", "build_sequences_ms", "generation_ms", "merge_ms",
+            "simulation_ms", "peak_rss_kb", "simulator_args"};
+    private static final String DEFAULT_SIMULATOR_ARGS = "-length 100 -frlength 300 -SD 50 -mutationrate 1";
+    private static final long RSS_POLL_MILLIS = 20;
+
+    // integer members of SimulationMetrics.writeJson, top level and phases_ms; their names do not overlap
+    private static final Pattern REPORT_NUMBER = Pattern.compile("\"(\\w+)\":\\s*(-?\\d+)(?![.\\d])");
+    private static final Pattern VM_HWM = Pattern.compile("VmHWM:\\s+(\\d+) kB");
+
+    private record RunResult(int exitCode, long wallMillis, long reads, long parseMillis, long buildMillis,
+                             long generationMillis, long mergeMillis, long simulationMillis, long peakRssKb) {}
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("od").hasArg().argName("path").desc("Working directory for datasets and simulator output").required().build());
+        options.addOption(Option.builder("out").hasArg().argName("path").desc("Results file, lines are appended (default <od>/results.tsv)").build());
+        options.addOption(Option.builder("sizes").hasArg().argName("list").desc("Comma separated dataset sizes in read pairs (default 100000,1000000)").build());
+        options.addOption(Option.builder("threads").hasArg().argName("list").desc("Comma separated generator thread counts (default 1,2,4)").build());
+        options.addOption(Option.builder("repeat").hasArg().argName("int").desc("Runs per size and thread count (default 1)").build());
+        options.addOption(Option.builder("simargs").hasArg().argName("args").desc("Extra simulator arguments (default \"" + DEFAULT_SIMULATOR_ARGS + "\")").build());
+        options.addOption(Option.builder("jvmargs").hasArg().argName("args").desc("Extra JVM arguments of the simulator, e.g. -Xmx4g").build());
+        SyntheticDatasetGenerator.addDatasetOptions(options);
+
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            Path workDir = Paths.get(cmd.getOptionValue("od"));
+            Path results = Paths.get(cmd.getOptionValue("out", workDir.resolve("results.tsv").toString()));
+            long[] sizes = Arrays.stream(cmd.getOptionValue("sizes", "100000,1000000").split(","))
+                    .mapToLong(s -> Long.parseLong(s.trim())).toArray();
+            int[] threadCounts = Arrays.stream(cmd.getOptionValue("threads", "1,2,4").split(","))
+                    .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+            int repeat = Integer.parseInt(cmd.getOptionValue("repeat", "1"));
+            List<String> simulatorArgs = splitArgs(cmd.getOptionValue("simargs", DEFAULT_SIMULATOR_ARGS));
+            List<String> jvmArgs = splitArgs(cmd.getOptionValue("jvmargs", ""));
+
+            if (Arrays.stream(sizes).anyMatch(size -> size < 1) || Arrays.stream(threadCounts).anyMatch(threads -> threads < 1) || repeat < 1)
+                throw new IllegalArgumentException("Sizes, thread counts and repeat must be positive");
+
+            Files.createDirectories(workDir);
+            for (long size : sizes) {
+                SyntheticDatasetGenerator.Dataset dataset = SyntheticDatasetGenerator.generate(
+                        workDir.resolve("dataset-" + size), SyntheticDatasetGenerator.specFrom(cmd, size));
+                System.out.printf("✔ Dataset with %d read pairs over %d transcripts in %s%n",
+                        dataset.reads(), dataset.transcripts(), dataset.fasta().getParent());
+
+                for (int threads : threadCounts) {
+                    for (int r = 0; r < repeat; r++) {
+                        System.out.printf("▶ %d read pairs on %d threads, run %d of %d%n", size, threads, r + 1, repeat);
+                        RunResult result = run(dataset, workDir.resolve("output"), threads, simulatorArgs, jvmArgs);
+                        appendResult(results, dataset, threads, r, result, simulatorArgs);
+                        if (result.exitCode() != 0) {
+                            System.out.printf("❌ Simulator exited with code %d%n", result.exitCode());
+                        } else {
+                            System.out.printf("✔ %d ms, %.0f reads/s, peak RSS %d kB%n",
+                                    result.wallMillis(), readsPerSecond(result), result.peakRssKb());
+                        }
+                    }
+                }
+            }
+            System.out.printf("✔ Results appended to %s%n", results.toAbsolutePath());
+
+        } catch (ParseException e) {
+            System.err.println("❌ Argument parsing error: " + e.getMessage());
+            new HelpFormatter().printHelp("java readSimulator.benchmarks.EndToEndBenchmark", options, true);
+            System.exit(1);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Invalid argument: " + e.getMessage());
+            System.exit(2);
+
+        } catch (IOException e) {
+            System.err.println("❌ I/O error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(3);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(4);
+        }
+    }
+
+    static List<String> splitArgs(String args) {
+        List<String> split = new ArrayList<>();
+        for (String arg : args.trim().split("\\s+")) {
+            if (!arg.isEmpty()) split.add(arg);
+        }
+        return split;
+    }
+
+    private static RunResult run(SyntheticDatasetGenerator.Dataset dataset, Path outputDir, int threads,
+                                 List<String> simulatorArgs, List<String> jvmArgs) throws IOException, InterruptedException {
+        deleteRecursively(outputDir);
+        Files.createDirectories(outputDir);
+
+        Path report = outputDir.resolve("simulation.metrics.json");
+        List<String> args = new ArrayList<>(simulatorArgs);
+        args.addAll(List.of("-metrics", report.toString()));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(simulatorCommand(dataset, outputDir, threads, args, jvmArgs))
+                .redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    synchronized (lines) {
+                        lines.add(line);
+                    }
+                }
+            } catch (IOException ignored) {
+                // the child is gone, whatever was read is shown if it failed
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        // VmHWM is already the high water mark, polling only has to catch the last value before the child exits
+        Path status = Paths.get("/proc", Long.toString(process.pid()), "status");
+        long peakRssKb = -1;
+        while (!process.waitFor(RSS_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            peakRssKb = Math.max(peakRssKb, readPeakRssKb(status));
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        reader.join();
+
+        if (process.exitValue() != 0) {
+            synchronized (lines) {
+                lines.forEach(System.err::println);
+            }
+        }
+        Map<String, Long> metrics = Files.exists(report) ? readReport(report) : Map.of();
+        deleteRecursively(outputDir);
+        return new RunResult(process.exitValue(), wallMillis, metrics.getOrDefault("reads_written", -1L),
+                metrics.getOrDefault("parse_gtf", -1L), metrics.getOrDefault("build_sequences", -1L),
+                metrics.getOrDefault("read_generation", -1L), metrics.getOrDefault("merge_shards", -1L),
+                metrics.getOrDefault("total_ms", -1L), peakRssKb);
+    }
+
+    // the integer members of the simulator's JSON report by name, phases under their phase name
+    private static Map<String, Long> readReport(Path report) throws IOException {
+        Map<String, Long> values = new HashMap<>();
+        Matcher matcher = REPORT_NUMBER.matcher(Files.readString(report));
+        while (matcher.find()) {
+            values.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        }
+        return values;
+    }
+
+    // the simulator on the benchmark's own class path, in a JVM of the same Java installation
+    static List<String> simulatorCommand(SyntheticDatasetGenerator.Dataset dataset, Path outputDir, int threads,
+                                         List<String> simulatorArgs, List<String> jvmArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(List.of("--add-modules", "jdk.incubator.vector",
+                "-cp", System.getProperty("java.class.path"), "readSimulator.ReadSimulator",
+                "-readcounts", dataset.readCounts().toString(),
+                "-fasta", dataset.fasta().toString(),
+                "-fidx", dataset.fastaIndex().toString(),
+                "-gtf", dataset.gtf().toString(),
+                "-od", outputDir.toString(),
+                "-threads", Integer.toString(threads)));
+        command.addAll(simulatorArgs);
+        return command;
+    }
+
+    private static long readPeakRssKb(Path status) {
+        try {
+            Matcher matcher = VM_HWM.matcher(Files.readString(status));
+            return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+        } catch (IOException e) {
+            // no /proc or the child just exited
+            return -1;
+        }
+    }
+
+    private static double readsPerSecond(RunResult result) {
+        return result.wallMillis() > 0 && result.reads() > 0 ? result.reads() * 1000.0 / result.wallMillis() : 0;
+    }
+
+    private static void appendResult(Path results, SyntheticDatasetGenerator.Dataset dataset, int threads, int repeat,
+                                     RunResult result, List<String> simulatorArgs) throws IOException {
+        boolean newFile = !Files.exists(results) || Files.size(results) == 0;
+        if (results.toAbsolutePath().getParent() != null) Files.createDirectories(results.toAbsolutePath().getParent());
+
+        try (Writer out = Files.newBufferedWriter(results, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) out.write(String.join("\t", COLUMNS) + "\n");
+            out.write(String.join("\t",
+                    Instant.now().toString(),
+                    Long.toString(dataset.reads()),
+                    Integer.toString(dataset.transcripts()),
+                    Integer.toString(threads),
+                    Integer.toString(repeat),
+                    Integer.toString(result.exitCode()),
+                    Long.toString(result.wallMillis()),
+                    Long.toString(result.reads()),
+                    String.format(Locale.ROOT, "%.1f", readsPerSecond(result)),
+                    Long.toString(result.parseMillis()),
+                    Long.toString(result.buildMillis()),
+                    Long.toString(result.generationMillis()),
+                    Long.toString(result.mergeMillis()),
+                    Long.toString(result.simulationMillis()),
+                    Long.toString(result.peakRssKb()),
+                    String.join(" ", simulatorArgs)) + "\n");
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package readSimulator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import readSimulator.IndexedFastaReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+IndexedFastaReader.seekSequence for exon sized ranges at random positions of a 16 Mb chromosome, through the shared
+channel and through the memory mapping. The range length follows the exon length a transcript of exonCount exons
+would have, at least one read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class FastaSeekBenchmark {
+    private static final int CHROMOSOME_LENGTH = 16 << 20;
+    private static final int LINE_BASES = 60;
+    private static final int POSITIONS = 4096;
+
+    @Param({"50", "150"})
+    public int readLength;
+
+    @Param({"1", "10", "50"})
+    public int exonCount;
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    private Path directory;
+    private IndexedFastaReader reader;
+    private long[] starts;
+    private int rangeLength;
+    private byte[] destination;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fasta-seek");
+        Path fasta = directory.resolve("genome.fa");
+        Path index = directory.resolve("genome.fa.fai");
+
+        String header = ">" + SyntheticTranscripts.CHROMOSOME + "\n";
+        byte[] bases = SyntheticTranscripts.randomBases(CHROMOSOME_LENGTH, SyntheticTranscripts.SEED);
+        try (OutputStream out = Files.newOutputStream(fasta)) {
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < CHROMOSOME_LENGTH; i += LINE_BASES) {
+                out.write(bases, i, Math.min(LINE_BASES, CHROMOSOME_LENGTH - i));
+                out.write('\n');
+            }
+        }
+        Files.writeString(index, SyntheticTranscripts.CHROMOSOME + "\t" + CHROMOSOME_LENGTH + "\t" + header.length()
+                + "\t" + LINE_BASES + "\t" + (LINE_BASES + 1) + "\n");
+
+        reader = new IndexedFastaReader(index, fasta, memoryMapped);
+        reader.openChannel();
+
+        rangeLength = Math.max(readLength, SyntheticTranscripts.TRANSCRIPT_LENGTH / exonCount);
+        destination = new byte[rangeLength];
+        Random random = new Random(SyntheticTranscripts.SEED);
+        starts = new long[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++) {
+            starts[i] = 1 + random.nextInt(CHROMOSOME_LENGTH - rangeLength);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.closeChannel();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int seekSequence() throws IOException {
+        long start = starts[next++ & (POSITIONS - 1)];
+        return reader.seekSequence(SyntheticTranscripts.CHROMOSOME, start, start + rangeLength - 1, destination, 0);
+    }
+}
@@ -0,0 +1,188 @@
+package readSimulator.benchmarks;
+
+import org.apache.commons.cli.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+Round trip of -fwout/-rwout through named pipes: the simulator writes forward and reverse FASTQ into two FIFOs that
+are read back here pair by pair, the way an aligner reads them, forward record, then its mate. The same seed is then
+simulated to plain files and both runs must contain the same read pairs.
+
+A simulator that fills one pipe while the mates it would need are still buffered for the other one blocks forever,
+together with the reader; the check fails after -timeout seconds instead. Needs mkfifo, output must be uncompressed.
+ */
+public class FifoRoundTripCheck {
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final String DEFAULT_SIMULATOR_ARGS = "-length 100 -frlength 300 -SD 50 -mutationrate 1 -seed 7";
+
+    // read pairs seen and an order independent digest of their records
+    private record PairDigest(long pairs, long digest) {}
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("od").hasArg().argName("path").desc("Working directory for the dataset, pipes and simulator output").required().build());
+        options.addOption(Option.builder("reads").hasArg().argName("long").desc("Read pairs of the dataset (default 200000)").build());
+        options.addOption(Option.builder("timeout").hasArg().argName("int").desc("Seconds the pipe run may take before it counts as stuck (default 120)").build());
+        options.addOption(Option.builder("simargs").hasArg().argName("args").desc("Extra simulator arguments (default \"" + DEFAULT_SIMULATOR_ARGS + "\")").build());
+        options.addOption(Option.builder("jvmargs").hasArg().argName("args").desc("Extra JVM arguments of the simulator").build());
+        SyntheticDatasetGenerator.addDatasetOptions(options);
+
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            Path workDir = Paths.get(cmd.getOptionValue("od"));
+            long reads = Long.parseLong(cmd.getOptionValue("reads", "200000"));
+            int timeoutSeconds = Integer.parseInt(cmd.getOptionValue("timeout", "120"));
+            List<String> simulatorArgs = EndToEndBenchmark.splitArgs(cmd.getOptionValue("simargs", DEFAULT_SIMULATOR_ARGS));
+            List<String> jvmArgs = EndToEndBenchmark.splitArgs(cmd.getOptionValue("jvmargs", ""));
+
+            if (reads < 1 || timeoutSeconds < 1)
+                throw new IllegalArgumentException("Reads and timeout must be positive");
+            if (simulatorArgs.contains("-bgzf"))
+                throw new IllegalArgumentException("The pipes are read as plain FASTQ, -bgzf is not supported");
+
+            Files.createDirectories(workDir);
+            SyntheticDatasetGenerator.Dataset dataset = SyntheticDatasetGenerator.generate(
+                    workDir.resolve("dataset-" + reads), SyntheticDatasetGenerator.specFrom(cmd, reads));
+
+            Path pipeDir = workDir.resolve("pipes");
+            EndToEndBenchmark.deleteRecursively(pipeDir);
+            Files.createDirectories(pipeDir);
+            Path forwardPipe = pipeDir.resolve("fw.fastq");
+            Path reversePipe = pipeDir.resolve("rw.fastq");
+            Process mkfifo = new ProcessBuilder("mkfifo", forwardPipe.toString(), reversePipe.toString()).inheritIO().start();
+            if (mkfifo.waitFor() != 0) throw new IOException("mkfifo failed with exit code " + mkfifo.exitValue());
+
+            List<String> pipeArgs = new ArrayList<>(simulatorArgs);
+            pipeArgs.addAll(List.of("-fwout", forwardPipe.toString(), "-rwout", reversePipe.toString()));
+            long start = System.nanoTime();
+            PairDigest piped = runThroughPipes(EndToEndBenchmark.simulatorCommand(dataset, pipeDir.resolve("output"), THREADS,
+                    pipeArgs, jvmArgs), forwardPipe, reversePipe, timeoutSeconds);
+            if (piped == null) {
+                System.err.printf("❌ Simulator and pair reader still blocked after %d s, the pipes deadlocked%n", timeoutSeconds);
+                System.exit(5);
+            }
+            System.out.printf("✔ Read %d pairs in lockstep from the pipes in %d ms%n", piped.pairs(), (System.nanoTime() - start) / 1_000_000);
+
+            Path fileDir = workDir.resolve("files");
+            EndToEndBenchmark.deleteRecursively(fileDir);
+            Files.createDirectories(fileDir);
+            Process process = new ProcessBuilder(EndToEndBenchmark.simulatorCommand(dataset, fileDir, THREADS, simulatorArgs, jvmArgs))
+                    .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (process.waitFor() != 0) throw new IOException("Simulator exited with code " + process.exitValue());
+            PairDigest written;
+            try (InputStream forward = Files.newInputStream(fileDir.resolve("fw.fastq"));
+                 InputStream reverse = Files.newInputStream(fileDir.resolve("rw.fastq"))) {
+                written = readPairs(forward, reverse);
+            }
+
+            if (!piped.equals(written)) {
+                System.err.printf("❌ Pipes gave %d pairs (digest %016x), files %d pairs (digest %016x)%n",
+                        piped.pairs(), piped.digest(), written.pairs(), written.digest());
+                System.exit(6);
+            }
+            System.out.printf("✔ Pipe and file output contain the same %d read pairs%n", written.pairs());
+            EndToEndBenchmark.deleteRecursively(pipeDir);
+            EndToEndBenchmark.deleteRecursively(fileDir);
+
+        } catch (ParseException e) {
+            System.err.println("❌ Argument parsing error: " + e.getMessage());
+            new HelpFormatter().printHelp("java readSimulator.benchmarks.FifoRoundTripCheck", options, true);
+            System.exit(1);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Invalid argument: " + e.getMessage());
+            System.exit(2);
+
+        } catch (IOException e) {
+            System.err.println("❌ I/O error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(3);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(4);
+        }
+    }
+
+    // null if the simulator or the reader did not finish in time
+    private static PairDigest runThroughPipes(List<String> command, Path forwardPipe, Path reversePipe, int timeoutSeconds)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        PairDigest[] result = new PairDigest[1];
+        IOException[] failure = new IOException[1];
+        Thread reader = new Thread(() -> {
+            // opening a FIFO for reading waits for the simulator to open it for writing
+            try (InputStream forward = Files.newInputStream(forwardPipe);
+                 InputStream reverse = Files.newInputStream(reversePipe)) {
+                result[0] = readPairs(forward, reverse);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        boolean exited = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+        // a simulator that failed before opening the pipes leaves the reader waiting in open, that is no deadlock
+        if (exited && process.exitValue() != 0) throw new IOException("Simulator exited with code " + process.exitValue());
+        reader.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        if (!exited || reader.isAlive()) {
+            process.destroyForcibly().waitFor();
+            return null;
+        }
+        if (failure[0] != null) throw failure[0];
+        return result[0];
+    }
+
+    // reads the forward record of a pair, then its mate, as a paired-end aligner does
+    private static PairDigest readPairs(InputStream forwardInput, InputStream reverseInput) throws IOException {
+        BufferedReader forward = new BufferedReader(new InputStreamReader(forwardInput, StandardCharsets.US_ASCII), 4096);
+        BufferedReader reverse = new BufferedReader(new InputStreamReader(reverseInput, StandardCharsets.US_ASCII), 4096);
+        long pairs = 0;
+        long digest = 0;
+        String[] forwardRecord = new String[4];
+        String[] reverseRecord = new String[4];
+        while (readRecord(forward, forwardRecord)) {
+            if (!readRecord(reverse, reverseRecord))
+                throw new IOException("Reverse FASTQ ended before the mate of " + forwardRecord[0]);
+            if (!forwardRecord[0].equals(reverseRecord[0]))
+                throw new IOException("Mates out of step: " + forwardRecord[0] + " and " + reverseRecord[0]);
+            // summed, so the order in which the writer emitted the chunks does not matter
+            digest += mix(String.join("\n", forwardRecord).hashCode() * 31L + String.join("\n", reverseRecord).hashCode());
+            pairs++;
+        }
+        if (reverse.readLine() != null) throw new IOException("Reverse FASTQ has records without a forward mate");
+        return new PairDigest(pairs, digest);
+    }
+
+    private static boolean readRecord(BufferedReader in, String[] record) throws IOException {
+        for (int line = 0; line < record.length; line++) {
+            record[line] = in.readLine();
+            if (record[line] == null) {
+                if (line == 0) return false;
+                throw new IOException("Truncated FASTQ record after " + record[0]);
+            }
+        }
+        return true;
+    }
+
+    // SplitMix64 finalizer, spreads the hash codes over all 64 bits
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,83 @@
+package readSimulator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import readSimulator.FragmentLengthSampler;
+import readSimulator.Gene;
+import readSimulator.RandomOperationExecutor;
+import readSimulator.ReadGenerationEventChunk;
+import readSimulator.Transcript;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+Read generation hot paths, per read pair: fragment sampling, mutating one mate, and the full event pass of
+createEventsForTranscript, which copies both mates, mutates them and projects them onto the genome.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@OperationsPerInvocation(ReadGenerationBenchmark.READS)
+public class ReadGenerationBenchmark {
+    static final int READS = 1024;
+
+    @Param({"50", "100", "150"})
+    public int readLength;
+
+    @Param({"1", "10", "50"})
+    public int exonCount;
+
+    // in percent, as passed to -mutationrate
+    @Param({"0", "0.1", "1"})
+    public double mutationRate;
+
+    private Transcript transcript;
+    private FragmentLengthSampler sampler;
+    private RandomOperationExecutor roe;
+    private ReadGenerationEventChunk chunk;
+    private byte[] template;
+    private byte[] read;
+
+    @Setup
+    public void setUp() {
+        Gene gene = SyntheticTranscripts.gene(exonCount, '+');
+        transcript = gene.getTranscript("T1");
+        sampler = SyntheticTranscripts.sampler(readLength);
+        roe = SyntheticTranscripts.executor();
+
+        chunk = new ReadGenerationEventChunk(readLength);
+        chunk.reset(gene.getGeneId(), transcript, 0, READS);
+        roe.initRandomSamples(0, READS, sampler, transcript.length(), chunk.getFragmentLengths(), chunk.getStartPositions());
+
+        template = new byte[readLength];
+        read = new byte[readLength];
+        transcript.copyForwardRead(0, template);
+    }
+
+    @Benchmark
+    public int[] initRandomSamples() {
+        roe.initRandomSamples(0, READS, sampler, transcript.length(), chunk.getFragmentLengths(), chunk.getStartPositions());
+        return chunk.getStartPositions();
+    }
+
+    @Benchmark
+    public int mutateInPlace() {
+        // mutations are only recorded, so the chunk keeps its sampled fragments
+        chunk.reset(chunk.getGeneId(), transcript, 0, READS);
+        for (int i = 0; i < READS; i++) {
+            System.arraycopy(template, 0, read, 0, readLength);
+            roe.seekMutationStream(i);
+            roe.mutateInPlace(read, mutationRate, chunk);
+        }
+        return chunk.getMutationCount();
+    }
+
+    @Benchmark
+    public int createEventsForTranscript() {
+        chunk.reset(chunk.getGeneId(), transcript, 0, READS);
+        transcript.createEventsForTranscript(chunk, 0, mutationRate, null, roe);
+        return chunk.getMutationCount();
+    }
+}
@@ -0,0 +1,113 @@
+package readSimulator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import readSimulator.AsciiOutputBuffer;
+import readSimulator.AsciiReadRecordEncoder;
+import readSimulator.Gene;
+import readSimulator.ReadGenerationEventChunk;
+import readSimulator.WriterReadRecordEncoder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+Encoding of one read pair as written by a ParallelizedOutputWriter: both FASTQ entries and the mappinginfo line, with
+the byte encoder and with the character based -legacywriter encoder. Output is discarded, so only encoding is
+measured. Exon count and mutation rate set how many regions and mutations a mappinginfo line carries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@OperationsPerInvocation(RecordEncoderBenchmark.READS)
+public class RecordEncoderBenchmark {
+    static final int READS = 1024;
+
+    @Param({"50", "100", "150"})
+    public int readLength;
+
+    @Param({"1", "10", "50"})
+    public int exonCount;
+
+    @Param({"0", "0.1", "1"})
+    public double mutationRate;
+
+    private ReadGenerationEventChunk chunk;
+    private byte[][] forwardReads;
+    private byte[][] reverseReads;
+
+    private AsciiReadRecordEncoder asciiEncoder;
+    private AsciiOutputBuffer asciiOutput;
+    private WriterReadRecordEncoder writerEncoder;
+    private BufferedWriter writerOutput;
+
+    // accepts and drops everything
+    private static final class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            source.position(source.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        Gene gene = SyntheticTranscripts.gene(exonCount, '+');
+        chunk = SyntheticTranscripts.filledChunk(gene, READS, readLength, mutationRate);
+        forwardReads = new byte[READS][readLength];
+        reverseReads = new byte[READS][readLength];
+        for (int i = 0; i < READS; i++) {
+            chunk.materializeForwardRead(i, forwardReads[i]);
+            chunk.materializeReverseRead(i, reverseReads[i]);
+        }
+
+        asciiOutput = new AsciiOutputBuffer(new DiscardingChannel());
+        asciiEncoder = new AsciiReadRecordEncoder(asciiOutput, asciiOutput, asciiOutput, readLength);
+
+        Path devNull = Path.of("/dev/null");
+        writerEncoder = new WriterReadRecordEncoder(devNull, devNull, devNull, readLength);
+        writerOutput = new BufferedWriter(Writer.nullWriter(), 1 << 16);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writerEncoder.close();
+    }
+
+    @Benchmark
+    public long asciiEncoder() throws IOException {
+        for (int i = 0; i < READS; i++) {
+            asciiEncoder.writeFastqEntry(asciiOutput, i, forwardReads[i]);
+            asciiEncoder.writeFastqEntry(asciiOutput, i, reverseReads[i]);
+            asciiEncoder.writeMappingInfoEvent(asciiOutput, i, chunk, i);
+        }
+        return asciiOutput.getBytesWritten();
+    }
+
+    @Benchmark
+    public BufferedWriter legacyWriterEncoder() throws IOException {
+        for (int i = 0; i < READS; i++) {
+            writerEncoder.writeFastqEntry(writerOutput, i, forwardReads[i]);
+            writerEncoder.writeFastqEntry(writerOutput, i, reverseReads[i]);
+            writerEncoder.writeMappingInfoEvent(writerOutput, i, chunk, i);
+        }
+        return writerOutput;
+    }
+}
@@ -0,0 +1,82 @@
+package readSimulator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import readSimulator.ReverseComplementKernel;
+import readSimulator.ScalarReverseComplement;
+import readSimulator.Transcript;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+Reverse complement of one read: the former per base switch, the scalar lookup table, the Vector API kernel and
+Transcript.reverseComplementInPlace, which dispatches to the kernel picked at startup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ReverseComplementBenchmark {
+    @Param({"50", "150", "300"})
+    public int readLength;
+
+    private byte[] read;
+    private ReverseComplementKernel scalar;
+    private ReverseComplementKernel vector;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        byte[] bases = {'A', 'C', 'G', 'T', 'a', 'c', 'g', 't', 'N'};
+        Random random = new Random(42);
+        read = new byte[readLength];
+        for (int i = 0; i < readLength; i++) {
+            read[i] = bases[random.nextInt(bases.length)];
+        }
+
+        scalar = new ScalarReverseComplement();
+        vector = (ReverseComplementKernel) Class.forName("readSimulator.VectorReverseComplement")
+                .getDeclaredConstructor().newInstance();
+    }
+
+    @Benchmark
+    public byte[] switchPerBase() {
+        int left = 0;
+        int right = read.length - 1;
+        while (left <= right) {
+            byte leftComplement = switchComplement(read[left]);
+            read[left++] = switchComplement(read[right]);
+            read[right--] = leftComplement;
+        }
+        return read;
+    }
+
+    @Benchmark
+    public byte[] scalarLookupTable() {
+        scalar.reverseComplement(read, 0, read.length);
+        return read;
+    }
+
+    @Benchmark
+    public byte[] vectorApi() {
+        vector.reverseComplement(read, 0, read.length);
+        return read;
+    }
+
+    @Benchmark
+    public byte[] transcriptReverseComplementInPlace() {
+        Transcript.reverseComplementInPlace(read, 0, read.length);
+        return read;
+    }
+
+    private static byte switchComplement(byte base) {
+        return switch (Character.toUpperCase((char) base)) {
+            case 'A' -> (byte) 'T';
+            case 'C' -> (byte) 'G';
+            case 'G' -> (byte) 'C';
+            case 'T', 'U' -> (byte) 'A';
+            default -> (byte) 'N';
+        };
+    }
+}
@@ -0,0 +1,239 @@
+package readSimulator.benchmarks;
+
+import org.apache.commons.cli.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/*
+Writes a random, self-consistent simulator input set: genome.fa with its .fai, annotation.gtf and
+readcounts.simulation. Everything is derived from the seed, so the same options always give the same files.
+
+Genes are placed in equal slots along the chromosomes. Every gene draws a pool of exons, every transcript an ordered
+subset of that pool (alternative splicing), exon counts follow a geometric distribution around the requested mean.
+Read counts follow a Zipf distribution over the transcripts in random order, so a few transcripts get most reads, as
+in real expression data.
+ */
+public class SyntheticDatasetGenerator {
+    private static final int LINE_BASES = 60;
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final int MIN_EXON = 50;
+    private static final int MAX_EXON = 400;
+    private static final int MIN_INTRON = 80;
+    private static final int MAX_INTRON = 2000;
+
+    public record DatasetSpec(int chromosomes, int chromosomeLength, int genes, int maxTranscripts, double meanExons,
+                              long reads, double skew, long seed) {}
+
+    // what was written, used by the end-to-end benchmark to describe a dataset
+    public record Dataset(Path fasta, Path fastaIndex, Path gtf, Path readCounts, int transcripts, long reads) {}
+
+    private record TranscriptModel(String geneId, String transcriptId, String chromosome, char strand, List<int[]> exons) {}
+
+    public static Dataset generate(Path outputDir, DatasetSpec spec) throws IOException {
+        Files.createDirectories(outputDir);
+        Dataset dataset = new Dataset(outputDir.resolve("genome.fa"), outputDir.resolve("genome.fa.fai"),
+                outputDir.resolve("annotation.gtf"), outputDir.resolve("readcounts.simulation"), 0, 0);
+
+        writeGenome(dataset.fasta(), dataset.fastaIndex(), spec);
+        List<TranscriptModel> transcripts = writeAnnotation(dataset.gtf(), spec);
+        long reads = writeReadCounts(dataset.readCounts(), transcripts, spec);
+
+        return new Dataset(dataset.fasta(), dataset.fastaIndex(), dataset.gtf(), dataset.readCounts(), transcripts.size(), reads);
+    }
+
+    private static String chromosomeName(int chromosome) {
+        return "chr" + (chromosome + 1);
+    }
+
+    private static void writeGenome(Path fasta, Path fastaIndex, DatasetSpec spec) throws IOException {
+        SplittableRandom random = new SplittableRandom(spec.seed());
+        byte[] line = new byte[LINE_BASES + 1];
+        long offset = 0;
+
+        try (OutputStream out = Files.newOutputStream(fasta);
+             BufferedWriter index = Files.newBufferedWriter(fastaIndex)) {
+            for (int c = 0; c < spec.chromosomes(); c++) {
+                byte[] header = (">" + chromosomeName(c) + " synthetic\n").getBytes(StandardCharsets.US_ASCII);
+                out.write(header);
+                offset += header.length;
+                index.write(chromosomeName(c) + "\t" + spec.chromosomeLength() + "\t" + offset + "\t"
+                        + LINE_BASES + "\t" + (LINE_BASES + 1) + "\n");
+
+                for (int position = 0; position < spec.chromosomeLength(); position += LINE_BASES) {
+                    int bases = Math.min(LINE_BASES, spec.chromosomeLength() - position);
+                    for (int i = 0; i < bases; i++) {
+                        line[i] = BASES[random.nextInt(BASES.length)];
+                    }
+                    line[bases] = '\n';
+                    out.write(line, 0, bases + 1);
+                    offset += bases + 1;
+                }
+            }
+        }
+    }
+
+    private static List<TranscriptModel> writeAnnotation(Path gtf, DatasetSpec spec) throws IOException {
+        Random random = new Random(spec.seed() + 1);
+        List<TranscriptModel> transcripts = new ArrayList<>();
+        int genesPerChromosome = (spec.genes() + spec.chromosomes() - 1) / spec.chromosomes();
+        int slot = spec.chromosomeLength() / Math.max(1, genesPerChromosome);
+
+        try (BufferedWriter out = Files.newBufferedWriter(gtf)) {
+            out.write("#!genome-build synthetic\n");
+            int gene = 0;
+            for (int c = 0; c < spec.chromosomes() && gene < spec.genes(); c++) {
+                for (int g = 0; g < genesPerChromosome && gene < spec.genes(); g++, gene++) {
+                    String geneId = String.format("SG%06d", gene + 1);
+                    char strand = random.nextBoolean() ? '+' : '-';
+                    List<int[]> pool = exonPool(random, g * slot + 1, slot, exonCount(random, spec.meanExons()) + 2);
+                    if (pool.isEmpty()) continue;
+
+                    int transcriptCount = 1 + random.nextInt(spec.maxTranscripts());
+                    for (int t = 0; t < transcriptCount; t++) {
+                        List<int[]> exons = new ArrayList<>(pool);
+                        int keep = Math.min(pool.size(), exonCount(random, spec.meanExons()));
+                        // drop random exons from the pool, the order of the rest stays genomic
+                        while (exons.size() > keep) {
+                            exons.remove(random.nextInt(exons.size()));
+                        }
+                        TranscriptModel transcript = new TranscriptModel(geneId, geneId + ".T" + (t + 1),
+                                chromosomeName(c), strand, exons);
+                        transcripts.add(transcript);
+                        writeTranscript(out, transcript);
+                    }
+                }
+            }
+        }
+        return transcripts;
+    }
+
+    // 1 + geometric number of exons with the given mean
+    private static int exonCount(Random random, double meanExons) {
+        double p = 1.0 / Math.max(1.0, meanExons);
+        int count = 1;
+        while (count < 1000 && random.nextDouble() >= p) count++;
+        return count;
+    }
+
+    // non-overlapping exons in genomic order inside the gene's slot
+    private static List<int[]> exonPool(Random random, int slotStart, int slotLength, int count) {
+        List<int[]> exons = new ArrayList<>();
+        int position = slotStart + random.nextInt(Math.max(1, MAX_INTRON));
+        int slotEnd = slotStart + slotLength - 1;
+        for (int e = 0; e < count; e++) {
+            int length = MIN_EXON + random.nextInt(MAX_EXON - MIN_EXON + 1);
+            if (position + length - 1 > slotEnd) break;
+            exons.add(new int[]{position, position + length - 1});
+            position += length + MIN_INTRON + random.nextInt(MAX_INTRON - MIN_INTRON + 1);
+        }
+        return exons;
+    }
+
+    private static void writeTranscript(BufferedWriter out, TranscriptModel transcript) throws IOException {
+        String attributes = "gene_id \"" + transcript.geneId() + "\"; transcript_id \"" + transcript.transcriptId() + "\";";
+        int number = 1;
+        for (int[] exon : transcript.exons()) {
+            out.write(transcript.chromosome() + "\tsynthetic\texon\t" + exon[0] + "\t" + exon[1] + "\t.\t"
+                    + transcript.strand() + "\t.\t" + attributes + " exon_number \"" + number++ + "\";\n");
+        }
+    }
+
+    private static long writeReadCounts(Path readCounts, List<TranscriptModel> transcripts, DatasetSpec spec) throws IOException {
+        List<TranscriptModel> ranked = new ArrayList<>(transcripts);
+        Collections.shuffle(ranked, new Random(spec.seed() + 2));
+
+        double[] weights = new double[ranked.size()];
+        double total = 0;
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            weights[rank] = 1.0 / Math.pow(rank + 1, spec.skew());
+            total += weights[rank];
+        }
+
+        long reads = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(readCounts)) {
+            out.write("gene\ttranscript\tcount\n");
+            // counts are listed in annotation order, ranks only decide how many reads a transcript gets
+            Map<String, Long> counts = new HashMap<>();
+            for (int rank = 0; rank < ranked.size(); rank++) {
+                counts.put(ranked.get(rank).transcriptId(), Math.round(spec.reads() * weights[rank] / total));
+            }
+            for (TranscriptModel transcript : transcripts) {
+                long count = counts.get(transcript.transcriptId());
+                out.write(transcript.geneId() + "\t" + transcript.transcriptId() + "\t" + count + "\n");
+                reads += count;
+            }
+        }
+        return reads;
+    }
+
+    // dataset shape options, shared with the end-to-end benchmark
+    static void addDatasetOptions(Options options) {
+        options.addOption(Option.builder("chromosomes").hasArg().argName("int").desc("Number of chromosomes (default 3)").build());
+        options.addOption(Option.builder("chrlength").hasArg().argName("int").desc("Bases per chromosome (default 2000000)").build());
+        options.addOption(Option.builder("genes").hasArg().argName("int").desc("Number of genes (default 300)").build());
+        options.addOption(Option.builder("maxtranscripts").hasArg().argName("int").desc("Maximum transcripts per gene (default 4)").build());
+        options.addOption(Option.builder("meanexons").hasArg().argName("double").desc("Mean exons per transcript (default 6)").build());
+        options.addOption(Option.builder("skew").hasArg().argName("double").desc("Zipf exponent of the read counts (default 1.0)").build());
+        options.addOption(Option.builder("seed").hasArg().argName("long").desc("Random seed (default 1)").build());
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("od").hasArg().argName("path").desc("Output directory").required().build());
+        options.addOption(Option.builder("reads").hasArg().argName("long").desc("Total number of read pairs (default 1000000)").build());
+        addDatasetOptions(options);
+
+        try {
+            CommandLine cmd = new DefaultParser().parse(options, args);
+            DatasetSpec spec = specFrom(cmd, Long.parseLong(cmd.getOptionValue("reads", "1000000")));
+            Dataset dataset = generate(Paths.get(cmd.getOptionValue("od")), spec);
+            System.out.printf("✔ Wrote %d transcripts of %d genes and %d read pairs to %s%n",
+                    dataset.transcripts(), spec.genes(), dataset.reads(), dataset.fasta().getParent().toAbsolutePath());
+
+        } catch (ParseException e) {
+            System.err.println("❌ Argument parsing error: " + e.getMessage());
+            new HelpFormatter().printHelp("java readSimulator.benchmarks.SyntheticDatasetGenerator", options, true);
+            System.exit(1);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Invalid argument: " + e.getMessage());
+            System.exit(2);
+
+        } catch (IOException e) {
+            System.err.println("❌ I/O error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(3);
+        }
+    }
+
+    static DatasetSpec specFrom(CommandLine cmd, long reads) {
+        DatasetSpec spec = new DatasetSpec(
+                Integer.parseInt(cmd.getOptionValue("chromosomes", "3")),
+                Integer.parseInt(cmd.getOptionValue("chrlength", "2000000")),
+                Integer.parseInt(cmd.getOptionValue("genes", "300")),
+                Integer.parseInt(cmd.getOptionValue("maxtranscripts", "4")),
+                Double.parseDouble(cmd.getOptionValue("meanexons", "6")),
+                reads,
+                Double.parseDouble(cmd.getOptionValue("skew", "1.0")),
+                Long.parseLong(cmd.getOptionValue("seed", "1")));
+
+        if (spec.chromosomes() < 1 || spec.chromosomeLength() < 1 || spec.genes() < 1 || spec.maxTranscripts() < 1)
+            throw new IllegalArgumentException("Chromosomes, chromosome length, genes and transcripts must be positive");
+        if (spec.reads() < 0 || spec.skew() < 0)
+            throw new IllegalArgumentException("Reads and skew must not be negative");
+        return spec;
+    }
+}
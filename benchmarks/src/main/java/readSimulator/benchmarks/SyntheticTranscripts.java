@@ -0,0 +1,71 @@
+package readSimulator.benchmarks;
+
+import readSimulator.ByteArraySequence;
+import readSimulator.Coordinates;
+import readSimulator.FragmentLengthSampler;
+import readSimulator.Gene;
+import readSimulator.RandomOperationExecutor;
+import readSimulator.ReadGenerationEventChunk;
+import readSimulator.Transcript;
+
+import java.util.Random;
+
+/*
+Deterministic inputs shared by the benchmarks: a random spliced transcript with a given number of equally long exons
+separated by introns, and chunks of reads drawn from it the same way the simulator does.
+ */
+public final class SyntheticTranscripts {
+    public static final String CHROMOSOME = "chrB";
+    public static final int TRANSCRIPT_LENGTH = 6000;
+    public static final int INTRON_LENGTH = 500;
+    public static final int FRAGMENT_LENGTH = 400;
+    public static final double FRAGMENT_SD = 60;
+    public static final long SEED = 42;
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private SyntheticTranscripts() {
+    }
+
+    public static byte[] randomBases(int length, long seed) {
+        Random random = new Random(seed);
+        byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    // gene "G1" holding transcript "T1" with exonCount exons, the transcript sequence is already built
+    public static Gene gene(int exonCount, char strand) {
+        Gene gene = new Gene("G1", CHROMOSOME);
+        gene.makeTranscript("T1", strand);
+        Transcript transcript = gene.getTranscript("T1");
+
+        int exonLength = TRANSCRIPT_LENGTH / exonCount;
+        int start = 1000;
+        for (int k = 0; k < exonCount; k++) {
+            transcript.addCoordinates(new Coordinates(start, start + exonLength - 1));
+            start += exonLength + INTRON_LENGTH;
+        }
+        transcript.setSequence(new ByteArraySequence(randomBases(exonLength * exonCount, SEED)));
+        return gene;
+    }
+
+    public static FragmentLengthSampler sampler(int readLength) {
+        return FragmentLengthSampler.of(FRAGMENT_LENGTH, FRAGMENT_SD, readLength);
+    }
+
+    // executor seeded the way Gene derives the stream of transcript T1
+    public static RandomOperationExecutor executor() {
+        return new RandomOperationExecutor(RandomOperationExecutor.streamSeed(RandomOperationExecutor.streamSeed(SEED, "G1"), "T1"));
+    }
+
+    // a chunk of reads with fragments, regions and mutations, as handed to the writers
+    public static ReadGenerationEventChunk filledChunk(Gene gene, int reads, int readLength, double mutationRate) {
+        ReadGenerationEventChunk chunk = new ReadGenerationEventChunk(readLength);
+        gene.fillRandomReadChunkForTranscript(chunk, "T1", 0, 0, reads,
+                FRAGMENT_LENGTH, FRAGMENT_SD, readLength, mutationRate, null, SEED);
+        return chunk;
+    }
+}
@@ -0,0 +1,50 @@
+package readSimulator;
+
+import java.util.ArrayDeque;
+
+/*
+Walker/Vose alias table: draws an index with probability proportional to its weight in constant time from a single
+uniform value, whatever the number of outcomes.
+ */
+public class AliasTable {
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        if (n == 0 || !(total > 0)) throw new IllegalArgumentException("Alias table needs a positive total weight");
+
+        probabilities = new double[n];
+        aliases = new int[n];
+        double[] scaled = new double[n];
+        ArrayDeque<Integer> small = new ArrayDeque<>();
+        ArrayDeque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            (scaled[i] < 1 ? small : large).add(i);
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.poll();
+            int more = large.poll();
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            (scaled[more] < 1 ? small : large).add(more);
+        }
+        // whatever is left is 1 up to rounding
+        for (int i : large) probabilities[i] = 1;
+        for (int i : small) probabilities[i] = 1;
+    }
+
+    // the integer part of u * n picks the column, the fraction decides between the column and its alias
+    public int sample(double u) {
+        double scaled = u * probabilities.length;
+        int column = (int) scaled;
+        return scaled - column < probabilities[column] ? column : aliases[column];
+    }
+}
@@ -0,0 +1,157 @@
+package readSimulator;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+Reusable direct buffer in front of a channel. Everything written is plain ASCII, numbers are formatted digit by
+digit straight into the buffer so no intermediate Strings or char arrays are created.
+ */
+public class AsciiOutputBuffer implements Closeable {
+    private static final int DEFAULT_CAPACITY = 1 << 20;
+    private static final byte NEWLINE = '\n';
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long bytesWritten = 0;
+
+    public AsciiOutputBuffer(WritableByteChannel channel, int capacity) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    public AsciiOutputBuffer(WritableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    public static AsciiOutputBuffer open(Path path) throws IOException {
+        return open(path, null);
+    }
+
+    // the process' standard output, BGZF compressed if a compressor is given
+    public static AsciiOutputBuffer openStandardOutput(BgzfCompressor compressor) {
+        FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+        return new AsciiOutputBuffer(compressor == null ? stdout : new BgzfOutputChannel(stdout, compressor));
+    }
+
+    // BGZF compressed file, blocks are compressed on the compressor's pool
+    public static AsciiOutputBuffer open(Path path, BgzfCompressor compressor) throws IOException {
+        return open(path, compressor, DEFAULT_CAPACITY);
+    }
+
+    public static AsciiOutputBuffer open(Path path, BgzfCompressor compressor, int capacity) throws IOException {
+        FileChannel file = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new AsciiOutputBuffer(compressor == null ? file : new BgzfOutputChannel(file, compressor), capacity);
+    }
+
+    public void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put(b);
+    }
+
+    public void put(byte[] bytes) throws IOException {
+        put(bytes, 0, bytes.length);
+    }
+
+    public void put(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            flush();
+            if (length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes, offset, length));
+                return;
+            }
+        }
+        buffer.put(bytes, offset, length);
+    }
+
+    public void newLine() throws IOException {
+        put(NEWLINE);
+    }
+
+    public void putLong(long value) throws IOException {
+        if (buffer.remaining() < 20) flush();
+
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                put(Long.toString(value).getBytes());
+                return;
+            }
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        // digits are written back to front into their final slots
+        int end = buffer.position() + digitCount(value);
+        int pos = end;
+        do {
+            buffer.put(--pos, (byte) ('0' + (value % 10)));
+            value /= 10;
+        } while (value != 0);
+        buffer.position(end);
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /*
+    Bytes in the file so far. For BGZF output this is the compressed size, the pending data is flushed and the current
+    block ended, so the position is a block boundary.
+     */
+    public long getBytesWritten() throws IOException {
+        if (channel instanceof BgzfOutputChannel bgzfChannel) {
+            flush();
+            return bgzfChannel.position();
+        }
+        return getBytesPut();
+    }
+
+    // uncompressed bytes put so far, including those still in the buffer
+    public long getBytesPut() {
+        return bytesWritten + buffer.position();
+    }
+
+    public int remaining() {
+        return buffer.remaining();
+    }
+
+    // flush, and for BGZF output also end the current block and wait until it is written, so the target has it all
+    public void drain() throws IOException {
+        flush();
+        if (channel instanceof BgzfOutputChannel bgzfChannel) bgzfChannel.position();
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        bytesWritten += source.remaining();
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,197 @@
+package readSimulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+Byte level FASTQ and mappinginfo encoder. Sequences are copied as raw bytes, ids and coordinates are formatted
+directly into the output buffers.
+ */
+public class AsciiReadRecordEncoder implements ReadRecordEncoder {
+    private static final byte TAB = '\t';
+    // default capacity of a Linux pipe
+    private static final int PIPE_CAPACITY = 1 << 16;
+
+    private final AsciiOutputBuffer forwardOutput;
+    private final AsciiOutputBuffer reverseOutput;
+    private final AsciiOutputBuffer mappingInfoOutput;
+    private final byte[] QUALITY_STRING;
+    private final int maxRecordBytes;
+    private boolean lockstep = false;
+
+    // ASCII forms of the names shared by all reads of the current transcript
+    private Transcript currentTranscript;
+    private String currentGeneId;
+    private byte[] chromosomeBytes;
+    private byte[] geneIdBytes;
+    private byte[] transcriptIdBytes;
+
+    public AsciiReadRecordEncoder(AsciiOutputBuffer forwardOutput, AsciiOutputBuffer reverseOutput, AsciiOutputBuffer mappingInfoOutput, int readLength) {
+        this.forwardOutput = forwardOutput;
+        this.reverseOutput = reverseOutput;
+        this.mappingInfoOutput = mappingInfoOutput;
+        this.QUALITY_STRING = new byte[readLength];
+        Arrays.fill(QUALITY_STRING, (byte) 'I');
+        this.maxRecordBytes = maxRecordBytes(readLength);
+    }
+
+    public AsciiReadRecordEncoder(Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int readLength) throws IOException {
+        this(fwFilePath, rwFilePath, mappingInfoPath, readLength, null);
+    }
+
+    // compressor: BGZF compresses all three files, null writes them uncompressed
+    public AsciiReadRecordEncoder(Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int readLength, BgzfCompressor compressor) throws IOException {
+        this(AsciiOutputBuffer.open(fwFilePath, compressor),
+                AsciiOutputBuffer.open(rwFilePath, compressor),
+                AsciiOutputBuffer.open(mappingInfoPath, compressor),
+                readLength);
+    }
+
+    /*
+    Interleaved FASTQ on standard output, forward and reverse record of a pair back to back, for piping straight into
+    an aligner. The mappinginfo still goes to a file.
+     */
+    public static AsciiReadRecordEncoder interleavedStandardOutput(Path mappingInfoPath, int readLength, BgzfCompressor compressor) throws IOException {
+        AsciiOutputBuffer fastqOutput = AsciiOutputBuffer.openStandardOutput(compressor);
+        return new AsciiReadRecordEncoder(fastqOutput, fastqOutput, AsciiOutputBuffer.open(mappingInfoPath, compressor), readLength);
+    }
+
+    /*
+    Forward and reverse FASTQ for named pipes that are read pair by pair, e.g. by an aligner. Both buffers hold at most
+    a pipe's capacity and are only drained together between two read pairs, so whenever the writer blocks on a full
+    pipe, the mates of every record in that pipe have already been written to the other one and the reader can go on.
+     */
+    public static AsciiReadRecordEncoder lockstepPairs(Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int readLength, BgzfCompressor compressor) throws IOException {
+        int capacity = Math.max(PIPE_CAPACITY, maxRecordBytes(readLength));
+        AsciiReadRecordEncoder encoder = new AsciiReadRecordEncoder(AsciiOutputBuffer.open(fwFilePath, compressor, capacity),
+                AsciiOutputBuffer.open(rwFilePath, compressor, capacity),
+                AsciiOutputBuffer.open(mappingInfoPath, compressor),
+                readLength);
+        encoder.lockstep = true;
+        return encoder;
+    }
+
+    // upper bound of one FASTQ record, ids have at most 20 digits
+    private static int maxRecordBytes(int readLength) {
+        return 2 * readLength + 64;
+    }
+
+    @Override
+    public void makeHeaders() throws IOException {
+        mappingInfoOutput.put(MAPPING_INFO_HEADER.getBytes(StandardCharsets.US_ASCII));
+        mappingInfoOutput.newLine();
+    }
+
+    @Override
+    public void writeReadPair(long id, ReadGenerationEventChunk chunk, int read, byte[] forwardRead, byte[] reverseRead) throws IOException {
+        if (lockstep && Math.min(forwardOutput.remaining(), reverseOutput.remaining()) < maxRecordBytes) {
+            forwardOutput.drain();
+            reverseOutput.drain();
+        }
+        if (chunk.hasQualities()) {
+            writeFastqEntry(forwardOutput, id, forwardRead, chunk.getQualities(), chunk.forwardQualityOffset(read));
+            writeFastqEntry(reverseOutput, id, reverseRead, chunk.getQualities(), chunk.reverseQualityOffset(read));
+        } else {
+            writeFastqEntry(forwardOutput, id, forwardRead);
+            writeFastqEntry(reverseOutput, id, reverseRead);
+        }
+        writeMappingInfoEvent(mappingInfoOutput, id, chunk, read);
+    }
+
+    @Override
+    public long[] getOutputPositions() throws IOException {
+        // interleaved output is one stream, counted as the forward file
+        long reverseBytes = reverseOutput == forwardOutput ? 0 : reverseOutput.getBytesWritten();
+        return new long[]{forwardOutput.getBytesWritten(), reverseBytes, mappingInfoOutput.getBytesWritten()};
+    }
+
+    @Override
+    public long getBytesEncoded() {
+        long reverseBytes = reverseOutput == forwardOutput ? 0 : reverseOutput.getBytesPut();
+        return forwardOutput.getBytesPut() + reverseBytes + mappingInfoOutput.getBytesPut();
+    }
+
+    public void writeFastqEntry(AsciiOutputBuffer output, long id, byte[] seq) throws IOException {
+        writeFastqEntry(output, id, seq, QUALITY_STRING, 0);
+    }
+
+    // qualities are copied straight out of the chunk's quality buffer
+    public void writeFastqEntry(AsciiOutputBuffer output, long id, byte[] seq, byte[] qualities, int qualityOffset) throws IOException {
+        output.put((byte) '@');
+        output.putLong(id);
+        output.newLine();
+        output.put(seq);
+        output.newLine();
+        output.put((byte) '+');
+        output.putLong(id);
+        output.newLine();
+        output.put(qualities, qualityOffset, seq.length);
+        output.newLine();
+    }
+
+    public void writeMappingInfoEvent(AsciiOutputBuffer output, long id, ReadGenerationEventChunk chunk, int read) throws IOException {
+        updateNames(chunk);
+        int fwFirst = chunk.getStartPosition(read);
+        int rwLast = fwFirst + chunk.getFragmentLength(read);
+        int readLength = chunk.getReadLength();
+
+        output.putLong(id);
+        output.put(TAB);
+        output.put(chromosomeBytes);
+        output.put(TAB);
+        output.put(geneIdBytes);
+        output.put(TAB);
+        output.put(transcriptIdBytes);
+        output.put(TAB);
+        writeRegions(output, chunk, chunk.forwardRegionsFrom(read), chunk.forwardRegionsTo(read));
+        output.put(TAB);
+        writeRegions(output, chunk, chunk.reverseRegionsFrom(read), chunk.reverseRegionsTo(read));
+        output.put(TAB);
+        writeRange(output, fwFirst, fwFirst + readLength);
+        output.put(TAB);
+        writeRange(output, rwLast - readLength, rwLast);
+        output.put(TAB);
+        writeMutations(output, chunk, chunk.forwardMutationsFrom(read), chunk.forwardMutationsTo(read));
+        output.put(TAB);
+        writeMutations(output, chunk, chunk.reverseMutationsFrom(read), chunk.reverseMutationsTo(read));
+        output.newLine();
+    }
+
+    private void updateNames(ReadGenerationEventChunk chunk) {
+        if (chunk.getTranscript() == currentTranscript && chunk.getGeneId().equals(currentGeneId)) return;
+        currentTranscript = chunk.getTranscript();
+        currentGeneId = chunk.getGeneId();
+        chromosomeBytes = currentTranscript.getChromosome().getBytes(StandardCharsets.US_ASCII);
+        geneIdBytes = currentGeneId.getBytes(StandardCharsets.US_ASCII);
+        transcriptIdBytes = currentTranscript.getTranscriptId().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeRange(AsciiOutputBuffer output, int start, int end) throws IOException {
+        output.putLong(start);
+        output.put((byte) '-');
+        output.putLong(end);
+    }
+
+    private static void writeRegions(AsciiOutputBuffer output, ReadGenerationEventChunk chunk, int from, int to) throws IOException {
+        for (int i = from; i < to; i += 2) {
+            if (i != from) output.put((byte) '|');
+            writeRange(output, chunk.regionAt(i), chunk.regionAt(i + 1));
+        }
+    }
+
+    private static void writeMutations(AsciiOutputBuffer output, ReadGenerationEventChunk chunk, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (i != from) output.put((byte) ',');
+            output.putLong(chunk.mutationPositionAt(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forwardOutput.close();
+        if (reverseOutput != forwardOutput) reverseOutput.close();
+        mappingInfoOutput.close();
+    }
+}
@@ -0,0 +1,137 @@
+package readSimulator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+Worker pool compressing BGZF blocks, shared by all compressed output files of a run.
+
+BGZF (as written by bgzip and htslib) is a series of independent gzip members of at most 64 KB, each carrying its own
+compressed size in a "BC" extra field. Every member is a valid gzip stream, so gzip, zcat and pigz read the files as
+usual, while blocks can be compressed in parallel and cut apart or concatenated at block boundaries.
+ */
+public class BgzfCompressor implements AutoCloseable {
+    // uncompressed bytes per block, small enough that even incompressible data fits the 64 KB block limit
+    public static final int BLOCK_DATA_SIZE = 0xff00;
+    public static final int MAX_BLOCK_SIZE = 1 << 16;
+    public static final int HEADER_SIZE = 18;
+    public static final int FOOTER_SIZE = 8;
+
+    // empty block marking the end of a BGZF file
+    public static final byte[] EOF_BLOCK = {
+            0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00, 0x42, 0x43, 0x02, 0x00,
+            0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
+    };
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final ThreadLocal<Deflater> deflaters;
+    // every Deflater handed out by deflaters, ended in close() to free their native zlib memory
+    private final Queue<Deflater> createdDeflaters;
+    private final ThreadLocal<CRC32> checksums = ThreadLocal.withInitial(CRC32::new);
+
+    // one block of data, compressed into its own buffer; both arrays are reused once the block is written
+    public static final class Block {
+        final byte[] data = new byte[BLOCK_DATA_SIZE];
+        final byte[] compressed = new byte[MAX_BLOCK_SIZE];
+        int length = 0;
+        int compressedLength = 0;
+    }
+
+    public BgzfCompressor(int threads, int level) {
+        if (level < 0 || level > 9) throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        this.threads = threads;
+        Queue<Deflater> created = new ConcurrentLinkedQueue<>();
+        this.createdDeflaters = created;
+        this.deflaters = ThreadLocal.withInitial(() -> {
+            Deflater deflater = new Deflater(level, true);
+            created.add(deflater);
+            return deflater;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bgzf-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Future<Block> submit(Block block) {
+        return pool.submit(() -> compress(block));
+    }
+
+    private Block compress(Block block) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(block.data, 0, block.length);
+        deflater.finish();
+
+        byte[] out = block.compressed;
+        int deflatedEnd = HEADER_SIZE + deflater.deflate(out, HEADER_SIZE, MAX_BLOCK_SIZE - HEADER_SIZE - FOOTER_SIZE);
+        if (!deflater.finished()) {
+            throw new IllegalStateException("BGZF block of " + block.length + " bytes does not fit into " + MAX_BLOCK_SIZE + " bytes");
+        }
+
+        CRC32 crc = checksums.get();
+        crc.reset();
+        crc.update(block.data, 0, block.length);
+
+        int blockSize = deflatedEnd + FOOTER_SIZE;
+        // gzip header with FEXTRA, subfield BC holding the total block size - 1
+        out[0] = 0x1f;
+        out[1] = (byte) 0x8b;
+        out[2] = 0x08;
+        out[3] = 0x04;
+        putInt(out, 4, 0);
+        out[8] = 0x00;
+        out[9] = (byte) 0xff;
+        putShort(out, 10, 6);
+        out[12] = 'B';
+        out[13] = 'C';
+        putShort(out, 14, 2);
+        putShort(out, 16, blockSize - 1);
+        putInt(out, deflatedEnd, (int) crc.getValue());
+        putInt(out, deflatedEnd + 4, block.length);
+
+        block.compressedLength = blockSize;
+        return block;
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        putShort(bytes, offset, value);
+        putShort(bytes, offset + 2, value >>> 16);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            // a failed writer can leave blocks in flight, their workers must be done with the Deflaters first
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+        // otherwise their native memory is only freed once the garbage collector gets around to them
+        Deflater deflater;
+        while ((deflater = createdDeflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
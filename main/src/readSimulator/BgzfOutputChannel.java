@@ -0,0 +1,112 @@
+package readSimulator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/*
+Channel writing BGZF compressed data: incoming bytes are cut into blocks, compressed on the shared BgzfCompressor
+pool and written to the target in submission order, like pigz/bgzip do. At most a few blocks per compression thread
+are in flight, so memory stays bounded and the caller slows down to the speed of the pool.
+
+Used by a single writer thread, the blocks are only shared with the compression pool through their futures.
+ */
+public class BgzfOutputChannel implements WritableByteChannel {
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    private final WritableByteChannel target;
+    private final BgzfCompressor compressor;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<Future<BgzfCompressor.Block>> pending = new ArrayDeque<>();
+    private final ArrayDeque<BgzfCompressor.Block> freeBlocks = new ArrayDeque<>();
+
+    private BgzfCompressor.Block current;
+    private long compressedBytesWritten = 0;
+    private boolean open = true;
+
+    public BgzfOutputChannel(WritableByteChannel target, BgzfCompressor compressor) {
+        this.target = target;
+        this.compressor = compressor;
+        this.maxPendingBlocks = BLOCKS_PER_THREAD * compressor.getThreads() + 1;
+        this.current = new BgzfCompressor.Block();
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        if (!open) throw new ClosedChannelException();
+        int written = source.remaining();
+        while (source.hasRemaining()) {
+            int length = Math.min(source.remaining(), BgzfCompressor.BLOCK_DATA_SIZE - current.length);
+            source.get(current.data, current.length, length);
+            current.length += length;
+            if (current.length == BgzfCompressor.BLOCK_DATA_SIZE) endBlock();
+        }
+        return written;
+    }
+
+    // hand the current block to the pool, even if it is not full
+    public void endBlock() throws IOException {
+        if (current.length == 0) return;
+        pending.add(compressor.submit(current));
+        current = freeBlocks.isEmpty() ? new BgzfCompressor.Block() : freeBlocks.poll();
+        current.length = 0;
+        while (pending.size() >= maxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+
+    /*
+    Compressed size of everything written so far. Ends the current block and waits for the pool, so the result is a
+    block boundary at which the file can be cut and concatenated with other BGZF data.
+     */
+    public long position() throws IOException {
+        endBlock();
+        while (!pending.isEmpty()) {
+            writeNextBlock();
+        }
+        return compressedBytesWritten;
+    }
+
+    private void writeNextBlock() throws IOException {
+        BgzfCompressor.Block block;
+        try {
+            block = pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for BGZF compression");
+        } catch (ExecutionException e) {
+            throw new IOException("BGZF compression failed", e.getCause());
+        }
+        writeFully(ByteBuffer.wrap(block.compressed, 0, block.compressedLength));
+        freeBlocks.add(block);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        compressedBytesWritten += source.remaining();
+        while (source.hasRemaining()) {
+            target.write(source);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!open) return;
+        try {
+            position();
+            writeFully(ByteBuffer.wrap(BgzfCompressor.EOF_BLOCK));
+        } finally {
+            open = false;
+            target.close();
+        }
+    }
+}
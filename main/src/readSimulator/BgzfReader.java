@@ -0,0 +1,217 @@
+package readSimulator;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/*
+Random access to a BGZF (bgzip) compressed file by uncompressed offset.
+
+The block index maps uncompressed offsets to the compressed start of their block. It is read from the .gzi file
+written by bgzip -i / samtools faidx, or rebuilt by walking the block headers if there is none. Decompressed blocks
+are kept in a small LRU cache, so neighbouring exons on the same block are only inflated once. Reads are positional
+and the cache is synchronized, so any number of threads can read at once.
+ */
+public class BgzfReader {
+    private static final int DEFAULT_CACHED_BLOCKS = 64;
+
+    private final FileChannel channel;
+    // compressed and uncompressed start of every block, sorted
+    private final long[] compressedOffsets;
+    private final long[] uncompressedOffsets;
+    private final int cachedBlocks;
+    private final LinkedHashMap<Integer, byte[]> cache;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    private long blockReads = 0;
+    private long cacheHits = 0;
+
+    public BgzfReader(FileChannel channel, Path gziPath) throws IOException {
+        this(channel, gziPath, DEFAULT_CACHED_BLOCKS);
+    }
+
+    public BgzfReader(FileChannel channel, Path gziPath, int cachedBlocks) throws IOException {
+        this.channel = channel;
+        this.cachedBlocks = cachedBlocks;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > BgzfReader.this.cachedBlocks;
+            }
+        };
+
+        long[][] index = gziPath != null && Files.exists(gziPath) ? readGzi(gziPath) : scanBlocks(channel);
+        this.compressedOffsets = index[0];
+        this.uncompressedOffsets = index[1];
+    }
+
+    // whether the file starts with a gzip header carrying the BGZF "BC" extra field
+    public static boolean isBgzf(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BgzfCompressor.HEADER_SIZE);
+        channel.read(header, 0);
+        byte[] bytes = header.array();
+        return header.position() == BgzfCompressor.HEADER_SIZE
+                && bytes[0] == 0x1f && bytes[1] == (byte) 0x8b && bytes[2] == 0x08 && (bytes[3] & 0x04) != 0
+                && bytes[12] == 'B' && bytes[13] == 'C';
+    }
+
+    /*
+    .gzi layout, all little endian: number of entries, then (compressed offset, uncompressed offset) per block except
+    the first one, which always starts at 0/0.
+     */
+    private static long[][] readGzi(Path gziPath) throws IOException {
+        try (InputStream input = Files.newInputStream(gziPath)) {
+            DataInputStream data = new DataInputStream(input);
+            int entries = (int) Long.reverseBytes(data.readLong());
+            long[] compressed = new long[entries + 1];
+            long[] uncompressed = new long[entries + 1];
+            for (int i = 1; i <= entries; i++) {
+                compressed[i] = Long.reverseBytes(data.readLong());
+                uncompressed[i] = Long.reverseBytes(data.readLong());
+            }
+            return new long[][]{compressed, uncompressed};
+        }
+    }
+
+    // block starts from the BSIZE field in every header and the ISIZE field at the end of every block
+    private static long[][] scanBlocks(FileChannel channel) throws IOException {
+        long[] compressed = new long[1024];
+        long[] uncompressed = new long[1024];
+        int blocks = 0;
+        long compressedOffset = 0;
+        long uncompressedOffset = 0;
+        long size = channel.size();
+
+        ByteBuffer header = ByteBuffer.allocate(BgzfCompressor.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer footer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        while (compressedOffset < size) {
+            readFully(channel, header.clear(), compressedOffset);
+            int blockSize = (header.getShort(16) & 0xffff) + 1;
+            readFully(channel, footer.clear(), compressedOffset + blockSize - 4);
+            int dataSize = footer.getInt(0);
+
+            if (blocks == compressed.length) {
+                compressed = Arrays.copyOf(compressed, blocks * 2);
+                uncompressed = Arrays.copyOf(uncompressed, blocks * 2);
+            }
+            compressed[blocks] = compressedOffset;
+            uncompressed[blocks] = uncompressedOffset;
+            blocks++;
+            compressedOffset += blockSize;
+            uncompressedOffset += dataSize;
+        }
+        return new long[][]{Arrays.copyOf(compressed, Math.max(1, blocks)), Arrays.copyOf(uncompressed, Math.max(1, blocks))};
+    }
+
+    /*
+    Copy up to length bytes starting at the uncompressed offset position into destination.
+    Returns the number of bytes copied, which is smaller than length only at the end of the file.
+     */
+    public int read(long position, byte[] destination, int destinationOffset, int length) throws IOException {
+        int block = blockContaining(position);
+        int copied = 0;
+        while (copied < length && block < compressedOffsets.length) {
+            byte[] data = block(block);
+            int from = (int) (position + copied - uncompressedOffsets[block]);
+            int count = Math.min(data.length - from, length - copied);
+            if (count > 0) {
+                System.arraycopy(data, from, destination, destinationOffset + copied, count);
+                copied += count;
+            }
+            block++;
+        }
+        return copied;
+    }
+
+    private int blockContaining(long position) {
+        int index = Arrays.binarySearch(uncompressedOffsets, position);
+        // empty blocks share their offset with the next block, the last one of a run holds the data
+        if (index >= 0) {
+            while (index + 1 < uncompressedOffsets.length && uncompressedOffsets[index + 1] == position) index++;
+            return index;
+        }
+        return Math.max(0, -index - 2);
+    }
+
+    private byte[] block(int block) throws IOException {
+        synchronized (cache) {
+            blockReads++;
+            byte[] data = cache.get(block);
+            if (data != null) {
+                cacheHits++;
+                return data;
+            }
+        }
+
+        // inflated outside the lock; two threads missing on the same block both inflate it, which is harmless
+        byte[] data = inflate(compressedOffsets[block]);
+        synchronized (cache) {
+            cache.put(block, data);
+        }
+        return data;
+    }
+
+    private byte[] inflate(long compressedOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BgzfCompressor.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, compressedOffset);
+        int blockSize = (header.getShort(16) & 0xffff) + 1;
+
+        ByteBuffer compressed = ByteBuffer.allocate(blockSize - BgzfCompressor.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, compressed, compressedOffset + BgzfCompressor.HEADER_SIZE);
+        int deflatedSize = compressed.capacity() - BgzfCompressor.FOOTER_SIZE;
+        byte[] data = new byte[compressed.getInt(deflatedSize + 4)];
+
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed.array(), 0, deflatedSize);
+        try {
+            int inflated = 0;
+            while (inflated < data.length && !inflater.finished()) {
+                int count = inflater.inflate(data, inflated, data.length - inflated);
+                if (count == 0 && inflater.needsInput()) break;
+                inflated += count;
+            }
+            if (inflated != data.length) {
+                throw new IOException("Truncated BGZF block at offset " + compressedOffset);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF block at offset " + compressedOffset, e);
+        }
+        return data;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException("BGZF block past the end of the file at offset " + position);
+        }
+    }
+
+    public long getBlockReads() {
+        synchronized (cache) {
+            return blockReads;
+        }
+    }
+
+    public long getCacheHits() {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
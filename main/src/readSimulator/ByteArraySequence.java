@@ -0,0 +1,24 @@
+package readSimulator;
+
+public class ByteArraySequence implements NucleotideSequence {
+    private final byte[] bases;
+
+    public ByteArraySequence(byte[] bases) {
+        this.bases = bases;
+    }
+
+    @Override
+    public int length() {
+        return bases.length;
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        return bases[index];
+    }
+
+    @Override
+    public void copy(int from, byte[] destination, int destinationOffset, int length) {
+        System.arraycopy(bases, from, destination, destinationOffset, length);
+    }
+}
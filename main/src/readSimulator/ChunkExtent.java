@@ -0,0 +1,7 @@
+package readSimulator;
+
+/*
+Location of one written chunk inside a writer shard. Start and end arrays hold byte offsets into the forward,
+reverse and mappinginfo shard file, in that order.
+ */
+public record ChunkExtent(long firstReadId, int shard, long[] start, long[] end) {}
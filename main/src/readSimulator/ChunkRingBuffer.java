@@ -0,0 +1,202 @@
+package readSimulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Hand-off between the read generators and the writers without locks and without allocating chunks per batch.
+
+A fixed set of chunk slots circulates between two bounded multi-producer/multi-consumer rings: generators claim a free
+slot, fill it in place and publish it, writers take published slots and release them back after writing. Both rings
+can hold every slot, so an offer only finds its cell occupied while the consumer that just took the previous element
+from it has not yet marked it free; offer waits for that instead of failing. Only claim and take wait for long.
+
+Shutdown: once all generators have published their last chunk, close() is called. Writers drain what is left and then
+receive null from take(). If a generator or writer fails, abort() makes every current and later claim and take throw
+a SimulationAbortedException instead, so nobody keeps waiting for a partner that is gone.
+ */
+public class ChunkRingBuffer {
+    private static final int SPINS = 128;
+    private static final int YIELDS = 64;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final Ring free;
+    private final Ring published;
+    private final int slotCount;
+    private final SimulationMetrics metrics;
+    private volatile boolean closed = false;
+    private volatile Throwable failure = null;
+
+    public ChunkRingBuffer(int slots, int readLength, SimulationMetrics metrics) {
+        int capacity = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        this.slotCount = capacity;
+        this.free = new Ring(capacity);
+        this.published = new Ring(capacity);
+        this.metrics = metrics;
+
+        for (int i = 0; i < capacity; i++) {
+            free.offer(new ReadGenerationEventChunk(readLength));
+        }
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    // a free slot to be filled through ReadGenerationEventChunk.reset, waits while all slots are in use
+    public ReadGenerationEventChunk claim() throws InterruptedException {
+        checkAborted();
+        ReadGenerationEventChunk chunk = free.poll();
+        if (chunk != null) return chunk;
+
+        // only waiting is timed, the uncontended claim stays free of clock reads
+        SimulatorEvents.QueueStall event = new SimulatorEvents.QueueStall();
+        event.begin();
+        long startTime = System.nanoTime();
+        for (int attempt = 0; (chunk = free.poll()) == null; attempt++) {
+            backOff(attempt);
+        }
+        metrics.recordProducerBlocked(System.nanoTime() - startTime);
+        if (event.shouldCommit()) {
+            event.cause = "ring slot";
+            event.commit();
+        }
+        return chunk;
+    }
+
+    public void publish(ReadGenerationEventChunk chunk) {
+        metrics.recordGenerated(chunk.size());
+        published.offer(chunk);
+    }
+
+    // next filled chunk, or null once the buffer is closed and drained
+    public ReadGenerationEventChunk take() throws InterruptedException {
+        checkAborted();
+        ReadGenerationEventChunk chunk = published.poll();
+        if (chunk != null) return chunk;
+
+        long startTime = System.nanoTime();
+        try {
+            for (int attempt = 0; (chunk = published.poll()) == null; attempt++) {
+                // everything published before close() is visible once closed is, so one more poll decides
+                if (closed) return published.poll();
+                backOff(attempt);
+            }
+            return chunk;
+        } finally {
+            metrics.recordWriterIdle(System.nanoTime() - startTime);
+        }
+    }
+
+    // published chunks not yet taken by a writer, a snapshot for monitoring
+    public int getQueuedChunks() {
+        return published.size();
+    }
+
+    public void release(ReadGenerationEventChunk chunk) {
+        chunk.clear();
+        free.offer(chunk);
+    }
+
+    public void close() {
+        closed = true;
+    }
+
+    // the first failure wins, waiting threads notice it within one back-off step
+    public synchronized void abort(Throwable cause) {
+        if (failure == null) failure = cause;
+    }
+
+    // what aborted the buffer, null if it was not aborted
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void checkAborted() {
+        Throwable cause = failure;
+        if (cause != null) throw new SimulationAbortedException(cause);
+    }
+
+    private void backOff(int attempt) throws InterruptedException {
+        checkAborted();
+        if (attempt < SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(10, attempt - SPINS - YIELDS)));
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /*
+    Bounded MPMC queue after Dmitry Vyukov: every cell carries a sequence number telling producers and consumers
+    whether it is free for position pos (sequence == pos) or holds the element of position pos (sequence == pos + 1).
+    Positions are claimed with a single CAS, the element itself is handed over by the ordered sequence write.
+     */
+    private static final class Ring {
+        private final ReadGenerationEventChunk[] cells;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong enqueuePosition = new AtomicLong();
+        private final AtomicLong dequeuePosition = new AtomicLong();
+
+        Ring(int capacity) {
+            this.cells = new ReadGenerationEventChunk[capacity];
+            this.sequences = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        // never fails: the capacity covers every slot, so an occupied cell is about to be freed by its consumer
+        void offer(ReadGenerationEventChunk chunk) {
+            long position = enqueuePosition.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (enqueuePosition.compareAndSet(position, position + 1)) {
+                        cells[index] = chunk;
+                        sequences.lazySet(index, position + 1);
+                        return;
+                    }
+                    position = enqueuePosition.get();
+                } else if (difference < 0) {
+                    // a consumer won this cell's dequeue but has not written its sequence yet
+                    Thread.onSpinWait();
+                    position = enqueuePosition.get();
+                } else {
+                    position = enqueuePosition.get();
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+        }
+
+        ReadGenerationEventChunk poll() {
+            long position = dequeuePosition.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - (position + 1);
+                if (difference == 0) {
+                    if (dequeuePosition.compareAndSet(position, position + 1)) {
+                        ReadGenerationEventChunk chunk = cells[index];
+                        cells[index] = null;
+                        sequences.lazySet(index, position + mask + 1);
+                        return chunk;
+                    }
+                    position = dequeuePosition.get();
+                } else if (difference < 0) {
+                    return null;
+                } else {
+                    position = dequeuePosition.get();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package readSimulator;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Exact inverse-CDF sampler for the fragment length distribution the simulator always used: a normal length rounded to
+the nearest integer and truncated to readLength < length < transcriptLength.
+
+The probability of length L is the normal mass on [L - 0.5, L + 0.5). One cumulative table over the lower truncated
+distribution is shared by all transcripts; the upper bound of a transcript is applied by scaling the uniform draw to
+the cumulative mass at transcriptLength - 1, which is the exact inverse CDF of the truncated distribution. So every
+draw costs one uniform and a binary search, however short the transcript. Transcripts whose upper bound is so close to
+the start of the shared table that lengths below it still carry mass get their own small table.
+ */
+public class FragmentLengthSampler {
+    // lengths further than this many standard deviations from the centre have a relative mass below e^-50
+    private static final double WINDOW_SDS = 10;
+    // narrower distributions put all but a vanishing mass on the length nearest the mean and are sampled as that length
+    private static final double POINT_MASS_SD = 0.01;
+    // bounds the integration work per length, 4 / POINT_MASS_SD sub-intervals already resolve the narrowest normal
+    private static final int MAX_SUB_INTERVALS = 1024;
+    private static final double[] GAUSS_NODES = {-0.8611363115940526, -0.3399810435848563, 0.3399810435848563, 0.8611363115940526};
+    private static final double[] GAUSS_WEIGHTS = {0.3478548451374538, 0.6521451548625461, 0.6521451548625461, 0.3478548451374538};
+    private static final ConcurrentHashMap<String, FragmentLengthSampler> SAMPLERS = new ConcurrentHashMap<>();
+
+    private final double mean;
+    private final double standardDeviation;
+    private final int minLength;
+    private final Table table;
+    private final ConcurrentHashMap<Integer, Table> shortTranscriptTables = new ConcurrentHashMap<>();
+
+    // cumulative, unnormalized masses of the lengths first..first + cdf.length - 1
+    private record Table(int first, double[] cdf) {}
+
+    public FragmentLengthSampler(double mean, double standardDeviation, int readLength) {
+        this.mean = mean;
+        this.standardDeviation = standardDeviation < POINT_MASS_SD ? 0 : standardDeviation;
+        this.minLength = readLength + 1;
+
+        double centre = Math.max(mean, minLength);
+        this.table = buildTable(
+                (int) Math.max(minLength, Math.floor(centre - WINDOW_SDS * this.standardDeviation)),
+                (int) Math.ceil(centre + WINDOW_SDS * this.standardDeviation));
+    }
+
+    // one sampler per parameter set, shared by all chunks of a run
+    public static FragmentLengthSampler of(double mean, double standardDeviation, int readLength) {
+        return SAMPLERS.computeIfAbsent(mean + "/" + standardDeviation + "/" + readLength,
+                key -> new FragmentLengthSampler(mean, standardDeviation, readLength));
+    }
+
+    // whether a transcript of this length can produce any fragment longer than the read length
+    public boolean canSample(int transcriptLength) {
+        if (standardDeviation <= 0) {
+            long length = Math.round(mean);
+            return length >= minLength && length < transcriptLength;
+        }
+        return transcriptLength - 1 >= minLength;
+    }
+
+    // fragment length for the uniform draw u in [0, 1)
+    public int sample(double u, int transcriptLength) {
+        if (!canSample(transcriptLength)) {
+            throw new IllegalArgumentException("No fragment length between " + minLength + " and " + (transcriptLength - 1));
+        }
+        if (standardDeviation <= 0) return (int) Math.round(mean);
+
+        int maxLength = transcriptLength - 1;
+        Table source = table;
+        // the shared table starts above minLength only when the lengths below it are negligible next to the mean,
+        // next to a lower upper bound they are not
+        if (table.first() > minLength && maxLength - WINDOW_SDS * standardDeviation < table.first()) {
+            source = shortTranscriptTables.computeIfAbsent(maxLength, max ->
+                    buildTable((int) Math.max(minLength, Math.floor(max - WINDOW_SDS * standardDeviation)), max));
+        }
+
+        int last = Math.min(maxLength, source.first() + source.cdf().length - 1) - source.first();
+        double target = u * source.cdf()[last];
+        int index = Arrays.binarySearch(source.cdf(), 0, last + 1, target);
+        // first length whose cumulative mass exceeds the target
+        index = index >= 0 ? index + 1 : -index - 1;
+        return source.first() + Math.min(index, last);
+    }
+
+    /*
+    Masses are integrated with 4 point Gauss-Legendre over enough sub-intervals to follow narrow distributions and
+    are scaled relative to the largest density in the table, so they do not underflow far out in the tails.
+     */
+    private Table buildTable(int first, int last) {
+        if (standardDeviation <= 0) return new Table(first, new double[]{1});
+        last = Math.max(first, last);
+
+        double nearest = Math.min(Math.max(mean, first - 0.5), last + 0.5);
+        double maxExponent = exponent(nearest);
+        int subIntervals = (int) Math.min(MAX_SUB_INTERVALS, Math.max(1, Math.ceil(4 / standardDeviation)));
+
+        double[] cdf = new double[last - first + 1];
+        double cumulative = 0;
+        for (int length = first; length <= last; length++) {
+            double mass = 0;
+            for (int s = 0; s < subIntervals; s++) {
+                double from = length - 0.5 + (double) s / subIntervals;
+                double halfWidth = 0.5 / subIntervals;
+                for (int g = 0; g < GAUSS_NODES.length; g++) {
+                    double x = from + halfWidth * (1 + GAUSS_NODES[g]);
+                    mass += GAUSS_WEIGHTS[g] * halfWidth * Math.exp(exponent(x) - maxExponent);
+                }
+            }
+            cumulative += mass;
+            cdf[length - first] = cumulative;
+        }
+        return new Table(first, cdf);
+    }
+
+    private double exponent(double x) {
+        double z = (x - mean) / standardDeviation;
+        return -0.5 * z * z;
+    }
+}
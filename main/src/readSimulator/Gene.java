@@ -1,9 +1,7 @@
 package readSimulator;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
 
 public class Gene {
     private final String geneId;
@@ -28,87 +26,98 @@ public class Gene {
         return transcriptMap.containsKey(transcriptId);
     }
 
-    public String getGeneId() {
-        return geneId;
+    public Collection<Transcript> getTranscripts() {
+        return transcriptMap.values();
     }
 
-    public void buildTranscriptSequences(IndexedFastaReader reader) {
-        for (Transcript transcript : transcriptMap.values()) {
-            transcript.buildSequence(reader);
-        }
+    public String getGeneId() {
+        return geneId;
     }
 
-    public void generateEventsForAllTranscripts (HashMap<String, Integer> counts,
-                                              int initialFragmentLength,
-                                              double standardDeviation,
-                                              int readLength,
-                                              double mutationRate,
-                                              BlockingQueue<ReadGenerationEventChunk> queue,
-                                              int CHUNK_SIZE) throws InterruptedException {
-
-        for (String transcriptId : transcriptMap.keySet())  {
-            int remaining = counts.get(transcriptId);
-
-            while (remaining > 0) {
-                int batch = Math.min(remaining, CHUNK_SIZE);
-
-                ReadGenerationEventChunk chunk = generateRandomReadChunkForTranscript(
-                        transcriptId,
-                        batch,
-                        initialFragmentLength,
-                        standardDeviation,
-                        readLength,
-                        mutationRate
-                );
-
-                queue.put(chunk);
-
-                remaining -= CHUNK_SIZE;
-            }
-        }
+    public String getChromosome() {
+        return chromosome;
     }
 
-    public List<ReadGenerationEventChunk> getAllChunks(HashMap<String, Integer> counts,
-                                                       int initialFragmentLength,
-                                                       double standardDeviation,
-                                                       int readLength,
-                                                       double mutationRate) {
-        List<ReadGenerationEventChunk> chunks = new ArrayList<>();
-
-        for  (String transcriptId : transcriptMap.keySet()) {
-            ReadGenerationEventChunk currentChunk = generateRandomReadChunkForTranscript(
+    /*
+    Generate the reads firstReadIndex..firstReadIndex+count-1 of a transcript in chunks sized by the governor.
+    Every read has its own random streams, so any split of a transcript into read ranges gives the same reads.
+     */
+    public void generateEventsForReadRange(String transcriptId,
+                                           long firstReadId,
+                                           long firstReadIndex,
+                                           int count,
+                                           int initialFragmentLength,
+                                           double standardDeviation,
+                                           int readLength,
+                                           double mutationRate,
+                                           SequencingErrorModel errorModel,
+                                           long seed,
+                                           ChunkRingBuffer ringBuffer,
+                                           MemoryGovernor governor) throws InterruptedException {
+        int remaining = count;
+        long readIndex = firstReadIndex;
+
+        while (remaining > 0) {
+            int chunkSize = governor.nextChunkSize();
+            int batch = Math.min(remaining, chunkSize);
+            long reserved = governor.acquire(batch);
+
+            ReadGenerationEventChunk chunk = ringBuffer.claim();
+            chunk.trimToCapacity(chunkSize);
+            fillRandomReadChunkForTranscript(
+                    chunk,
                     transcriptId,
-                    counts.get(transcriptId),
+                    firstReadId,
+                    readIndex,
+                    batch,
                     initialFragmentLength,
                     standardDeviation,
                     readLength,
-                    mutationRate);
-            chunks.add(currentChunk);
+                    mutationRate,
+                    errorModel,
+                    seed
+            );
+
+            chunk.setBufferedBytes(governor.adjust(reserved, chunk.estimatedBytes(), batch));
+            ringBuffer.publish(chunk);
+
+            remaining -= batch;
+            firstReadId += batch;
+            readIndex += batch;
         }
-        return chunks;
     }
 
-    public ReadGenerationEventChunk generateRandomReadChunkForTranscript(String transcriptId,
-                                            int count,
-                                            int initialFragmentLength,
-                                            double standardDeviation,
-                                            int readLength,
-                                            double mutationRate) {
-
+    // the reads of one chunk, drawn into a recycled chunk in place
+    public void fillRandomReadChunkForTranscript(ReadGenerationEventChunk chunk,
+                                                 String transcriptId,
+                                                 long firstReadId,
+                                                 long firstReadIndex,
+                                                 int count,
+                                                 int initialFragmentLength,
+                                                 double standardDeviation,
+                                                 int readLength,
+                                                 double mutationRate,
+                                                 SequencingErrorModel errorModel,
+                                                 long seed) {
+
+        SimulatorEvents.ChunkGeneration event = new SimulatorEvents.ChunkGeneration();
+        event.begin();
         Transcript transcript = getTranscript(transcriptId);
-        int[] randomLengths = new int[count];
-        int[] randomStartingPositions = new int[count];
-
-        RandomOperationExecutor roe = new RandomOperationExecutor();
-        roe.initRandomSamples(count, initialFragmentLength, standardDeviation, transcript.length(), readLength, randomLengths, randomStartingPositions);
-        return new ReadGenerationEventChunk(transcript.createEventsForTranscript(
-                randomLengths,
-                randomStartingPositions,
-                readLength,
-                mutationRate,
-                roe,
-                chromosome,
-                geneId)
-        );
+        chunk.reset(geneId, transcript, firstReadId, count);
+        if (errorModel != null) chunk.enableQualities();
+
+        long transcriptSeed = RandomOperationExecutor.streamSeed(RandomOperationExecutor.streamSeed(seed, geneId), transcriptId);
+        RandomOperationExecutor roe = new RandomOperationExecutor(transcriptSeed);
+        FragmentLengthSampler fragmentLengthSampler = FragmentLengthSampler.of(initialFragmentLength, standardDeviation, readLength);
+        roe.initRandomSamples(firstReadIndex, count, fragmentLengthSampler, transcript.length(), chunk.getFragmentLengths(), chunk.getStartPositions());
+        transcript.createEventsForTranscript(chunk, firstReadIndex, mutationRate, errorModel, roe);
+
+        if (event.shouldCommit()) {
+            event.geneId = geneId;
+            event.transcriptId = transcriptId;
+            event.firstReadId = firstReadId;
+            event.readCount = count;
+            event.commit();
+        }
     }
 }
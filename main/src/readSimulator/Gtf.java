@@ -1,80 +1,205 @@
 package readSimulator;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 public class Gtf {
+    // upper bound for the bytes parsed by one task, also keeps every mapping below 2 GB
+    private static final long MAX_RANGE_BYTES = 64L << 20;
+    private static final byte[] EXON = "exon".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSCRIPT_ID = "transcript_id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GENE_ID = "gene_id".getBytes(StandardCharsets.US_ASCII);
+
     private final HashMap<String, Gene> genes;
 
-    public Gtf(Path filePath, List<String> relevantTranscriptIds) {
+    private record ExonRecord(String chromosome, String geneId, String transcriptId, char strand, int start, int end) {}
+
+    public Gtf(Path filePath, Collection<String> relevantTranscriptIds) {
         genes = new HashMap<>();
+        Set<String> relevant = relevantTranscriptIds instanceof Set<String> set ? set : new HashSet<>(relevantTranscriptIds);
 
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(filePath.toFile()));
-            String line;
-
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("#")) continue;
-
-                String[] fields = line.split("\t");
-                if (!fields[2].equals("exon")) continue;
-
-                String transcriptId = Gtf.getAttribute("transcript_id", fields[8]);
-                if (!relevantTranscriptIds.contains(transcriptId)) continue;
-
-                String geneId = Gtf.getAttribute("gene_id", fields[8]);
-
-                char strand = fields[6].charAt(0);
-
-                if (!genes.containsKey(geneId)) {
-                    Gene gene = new Gene(geneId, fields[0]);
-                    gene.makeTranscript(transcriptId, strand);
-                    gene.getTranscript(transcriptId).addCoordinates(new Coordinates(Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
-                    genes.put(geneId, gene);
-                } else {
-                    Gene currentGene = genes.get(geneId);
-                    if (!currentGene.hasTranscript(transcriptId)) {
-                        currentGene.makeTranscript(transcriptId, strand);
-                        currentGene.getTranscript(transcriptId).addCoordinates(new Coordinates(Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
-                    } else {
-                        currentGene.getTranscript(transcriptId).addCoordinates(new Coordinates(Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
-                    }
+        /*
+        The file is cut into line aligned byte ranges which are parsed in parallel. The exon records of all ranges are
+        then added in file order, so genes and transcripts end up exactly as with a sequential read.
+         */
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<long[]> ranges = lineAlignedRanges(channel);
+            List<List<ExonRecord>> parsed = ranges.parallelStream()
+                    .map(range -> parseRange(channel, range[0], range[1], relevant))
+                    .toList();
+
+            for (List<ExonRecord> records : parsed) {
+                for (ExonRecord record : records) {
+                    addExon(record);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
-    public Gene getGene(String geneId) {
-        return genes.get(geneId);
+    // genes with already built transcripts, e.g. restored from a TranscriptomeCache snapshot
+    public Gtf(Collection<Gene> genes) {
+        this.genes = new HashMap<>();
+        for (Gene gene : genes) {
+            this.genes.put(gene.getGeneId(), gene);
+        }
     }
 
-    public List<Gene> getGenes() {
-        return new ArrayList<>(genes.values());
+    private void addExon(ExonRecord record) {
+        Gene gene = genes.get(record.geneId());
+        if (gene == null) {
+            gene = new Gene(record.geneId(), record.chromosome());
+            genes.put(record.geneId(), gene);
+        }
+        if (!gene.hasTranscript(record.transcriptId())) {
+            gene.makeTranscript(record.transcriptId(), record.strand());
+        }
+        gene.getTranscript(record.transcriptId()).addCoordinates(new Coordinates(record.start(), record.end()));
+    }
+
+    private static List<long[]> lineAlignedRanges(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parts = (int) Math.max(Runtime.getRuntime().availableProcessors(), (size + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+        long step = Math.max(1, Math.min(MAX_RANGE_BYTES, (size + parts - 1) / parts));
+
+        List<long[]> ranges = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = nextLineStart(channel, Math.min(size, start + step), size);
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static List<ExonRecord> parseRange(FileChannel channel, long from, long to, Set<String> relevantTranscriptIds) {
+        MappedByteBuffer bytes;
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<ExonRecord> records = new ArrayList<>();
+        int[] tabs = new int[8];
+        int limit = bytes.limit();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            int tabCount = 0;
+            while (lineEnd < limit && bytes.get(lineEnd) != '\n') {
+                if (bytes.get(lineEnd) == '\t' && tabCount < tabs.length) tabs[tabCount++] = lineEnd;
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (tabCount == tabs.length
+                    && bytes.get(lineStart) != '#'
+                    && equalsAt(bytes, tabs[1] + 1, tabs[2], EXON)) {
+
+                int attributesStart = tabs[7] + 1;
+                String transcriptId = attributeValue(bytes, attributesStart, contentEnd, TRANSCRIPT_ID);
+
+                if (transcriptId != null && relevantTranscriptIds.contains(transcriptId)) {
+                    String geneId = attributeValue(bytes, attributesStart, contentEnd, GENE_ID);
+                    records.add(new ExonRecord(
+                            ascii(bytes, lineStart, tabs[0]),
+                            geneId,
+                            transcriptId,
+                            (char) bytes.get(tabs[5] + 1),
+                            parseInt(bytes, tabs[2] + 1, tabs[3]),
+                            parseInt(bytes, tabs[3] + 1, tabs[4])));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return records;
     }
 
-    public void buildGenesTranscriptSequences(IndexedFastaReader reader) {
-        for (Gene gene : genes.values()) {
-            gene.buildTranscriptSequences(reader);
+    private static boolean equalsAt(ByteBuffer bytes, int from, int to, byte[] expected) {
+        if (to - from != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes.get(from + i) != expected[i]) return false;
         }
+        return true;
+    }
+
+    // value of an attribute: first occurrence of key followed by whitespace and a quoted value
+    private static String attributeValue(ByteBuffer bytes, int from, int to, byte[] key) {
+        for (int i = from; i + key.length < to; i++) {
+            if (!equalsAt(bytes, i, i + key.length, key)) continue;
+
+            int pos = i + key.length;
+            if (!isWhitespace(bytes.get(pos))) continue;
+            while (pos < to && isWhitespace(bytes.get(pos))) pos++;
+            if (pos >= to || bytes.get(pos) != '"') continue;
+
+            int valueStart = ++pos;
+            while (pos < to && bytes.get(pos) != '"') pos++;
+            if (pos >= to || pos == valueStart) continue;
+            return ascii(bytes, valueStart, pos);
+        }
+        return null;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    private static String ascii(ByteBuffer bytes, int from, int to) {
+        byte[] value = new byte[to - from];
+        bytes.get(from, value);
+        return new String(value, StandardCharsets.US_ASCII);
     }
 
-    public static String getAttribute(String attribute, String column) {
-        Pattern pattern = Pattern.compile(attribute + "\\s+\"([^\"]+)\"");
-        Matcher matcher = pattern.matcher(column);
-        if (matcher.find()) {
-            return matcher.group(1);
-        } else {
-            System.out.println("Wasn't able to extract '" + attribute + " from string '"+ column +"'");
-            return null;
+    private static int parseInt(ByteBuffer bytes, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (bytes.get(i) - '0');
         }
+        return value;
+    }
+
+    public Gene getGene(String geneId) {
+        return genes.get(geneId);
+    }
+
+    public boolean hasTranscript(String geneId, String transcriptId) {
+        Gene gene = genes.get(geneId);
+        return gene != null && gene.hasTranscript(transcriptId);
+    }
+
+    public List<Gene> getGenes() {
+        return new ArrayList<>(genes.values());
     }
 }
@@ -1,40 +1,91 @@
 package readSimulator;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public class IndexedFastaReader {
+    // a single mapping may not exceed Integer.MAX_VALUE bytes, larger chromosomes are split into line aligned segments
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
     private final Path fastaPath;
     private final FastaIndex index;
+    private boolean memoryMapped;
+    // set when the FASTA is bgzip compressed, the .fai offsets are then uncompressed offsets
+    private BgzfReader bgzfReader = null;
+    private final ConcurrentHashMap<String, MappedByteBuffer[]> mappedChromosomes = new ConcurrentHashMap<>();
     private FileChannel channel;
     public static final Logger LOGGER = Logger.getLogger(IndexedFastaReader.class.getName());
 
     public IndexedFastaReader(Path fastaIndexPath, Path fastaPath) {
+        this(fastaIndexPath, fastaPath, false);
+    }
+
+    public IndexedFastaReader(Path fastaIndexPath, Path fastaPath, boolean memoryMapped) {
         this.index = new FastaIndex(fastaIndexPath);
         this.fastaPath = fastaPath;
+        this.memoryMapped = memoryMapped;
         channel = null;
     }
 
     public void openChannel() throws IOException {
         channel = FileChannel.open(fastaPath, StandardOpenOption.READ);
+        if (BgzfReader.isBgzf(channel)) {
+            bgzfReader = new BgzfReader(channel, fastaPath.resolveSibling(fastaPath.getFileName() + ".gzi"));
+            if (memoryMapped) {
+                LOGGER.warning("Memory mapping is not possible for the BGZF compressed FASTA " + fastaPath + ", reading blocks instead");
+                memoryMapped = false;
+            }
+        }
     }
 
     public void closeChannel() throws IOException {
         channel.close();
+        mappedChromosomes.clear();
+        if (bgzfReader != null) bgzfReader.clearCache();
+    }
+
+    public boolean isCompressed() {
+        return bgzfReader != null;
+    }
+
+    // decompressed block lookups and how many of them were served from the block cache
+    public long getBlockReads() {
+        return bgzfReader == null ? 0 : bgzfReader.getBlockReads();
+    }
+
+    public long getBlockCacheHits() {
+        return bgzfReader == null ? 0 : bgzfReader.getCacheHits();
     }
 
     public boolean isOpen() {
         return channel != null && channel.isOpen();
     }
 
+    public FastaIndexEntry getIndexEntry(String chr) {
+        return index.get(chr);
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
     public byte[] seekSequence(String chr, long start, long end) throws IOException {
         FastaIndexEntry indexEntry = index.get(chr);
         if (indexEntry == null) return null;
 
+        if (memoryMapped) {
+            byte[] result = new byte[(int) clippedLength(indexEntry, start, end)];
+            copyMapped(indexEntry, start, result.length, result, 0);
+            return result;
+        }
+
         long basesToRead = end - start + 1;
         int lineBases = indexEntry.lineBases();
         int lineWidth = indexEntry.lineWidth();
@@ -54,9 +105,9 @@ public class IndexedFastaReader {
          */
         long bytesToRead = basesToRead + (basesToRead / lineBases) + 2;
 
+        // positional read, the channel position is never touched so concurrent callers do not interfere
         ByteBuffer byteBuffer = ByteBuffer.allocate((int) bytesToRead);
-        channel.position(startingBytePosition);
-        channel.read(byteBuffer);
+        readAt(byteBuffer, startingBytePosition);
 
         byteBuffer.flip();
         byte[] rawBytes = new byte[byteBuffer.limit()];
@@ -73,4 +124,101 @@ public class IndexedFastaReader {
         return result;
 
     }
+
+    // positional read of plain or BGZF compressed FASTA bytes, position is an uncompressed file offset
+    private void readAt(ByteBuffer buffer, long position) throws IOException {
+        if (bgzfReader == null) {
+            channel.read(buffer, position);
+            return;
+        }
+        int read = bgzfReader.read(position, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        buffer.position(buffer.position() + read);
+    }
+
+    /*
+    Copy the 1-based, inclusive range start..end of a chromosome straight into destination.
+    Returns the number of bases copied, which is smaller than the requested range if it runs past the chromosome end.
+     */
+    public int seekSequence(String chr, long start, long end, byte[] destination, int destinationOffset) throws IOException {
+        FastaIndexEntry indexEntry = index.get(chr);
+        if (indexEntry == null) return 0;
+
+        if (!memoryMapped) {
+            byte[] bases = seekSequence(chr, start, end);
+            System.arraycopy(bases, 0, destination, destinationOffset, bases.length);
+            return bases.length;
+        }
+
+        int length = (int) clippedLength(indexEntry, start, end);
+        copyMapped(indexEntry, start, length, destination, destinationOffset);
+        return length;
+    }
+
+    private static long clippedLength(FastaIndexEntry indexEntry, long start, long end) {
+        return Math.max(0, Math.min(end, indexEntry.seqLength()) - start + 1);
+    }
+
+    /*
+    Copy line by line from the mapped chromosome. Only absolute gets are used on the shared buffers, so this is safe to
+    call from any number of threads without locking.
+     */
+    private void copyMapped(FastaIndexEntry indexEntry, long start, int length, byte[] destination, int destinationOffset) {
+        MappedByteBuffer[] segments = mappedChromosome(indexEntry);
+        int lineBases = indexEntry.lineBases();
+        int lineWidth = indexEntry.lineWidth();
+        long linesPerSegment = linesPerSegment(indexEntry);
+
+        long position = start - 1;
+        int copied = 0;
+        while (copied < length) {
+            long line = position / lineBases;
+            int column = (int) (position % lineBases);
+            int count = Math.min(lineBases - column, length - copied);
+
+            int segment = (int) (line / linesPerSegment);
+            int segmentOffset = (int) ((line % linesPerSegment) * lineWidth + column);
+            segments[segment].get(segmentOffset, destination, destinationOffset + copied, count);
+
+            copied += count;
+            position += count;
+        }
+    }
+
+    private MappedByteBuffer[] mappedChromosome(FastaIndexEntry indexEntry) {
+        return mappedChromosomes.computeIfAbsent(indexEntry.seqName(), name -> {
+            try {
+                return map(indexEntry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private MappedByteBuffer[] map(FastaIndexEntry indexEntry) throws IOException {
+        long lines = (indexEntry.seqLength() + indexEntry.lineBases() - 1) / indexEntry.lineBases();
+        long linesPerSegment = linesPerSegment(indexEntry);
+        int segmentCount = (int) Math.max(1, (lines + linesPerSegment - 1) / linesPerSegment);
+        long chromosomeBytes = (indexEntry.seqLength() / indexEntry.lineBases()) * indexEntry.lineWidth()
+                + indexEntry.seqLength() % indexEntry.lineBases();
+
+        // the last line of the file may lack its line break
+        chromosomeBytes = Math.min(chromosomeBytes, channel.size() - indexEntry.offset());
+
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long segmentStart = i * linesPerSegment * indexEntry.lineWidth();
+            long segmentSize = Math.min(linesPerSegment * indexEntry.lineWidth(), chromosomeBytes - segmentStart);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, indexEntry.offset() + segmentStart, segmentSize);
+        }
+        return segments;
+    }
+
+    // drop the mappings of a chromosome that will not be read again, they are unmapped once garbage collected
+    public void releaseChromosome(String chr) {
+        mappedChromosomes.remove(chr);
+    }
+
+    private static long linesPerSegment(FastaIndexEntry indexEntry) {
+        return Math.max(1, MAX_SEGMENT_BYTES / indexEntry.lineWidth());
+    }
 }
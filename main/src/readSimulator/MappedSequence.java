@@ -0,0 +1,34 @@
+package readSimulator;
+
+import java.nio.ByteBuffer;
+
+/*
+Sequence living off-heap in a memory-mapped file. Only absolute gets are used, so one buffer can back many
+sequences and be read by any number of threads.
+ */
+public class MappedSequence implements NucleotideSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    public MappedSequence(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        return buffer.get(offset + index);
+    }
+
+    @Override
+    public void copy(int from, byte[] destination, int destinationOffset, int length) {
+        buffer.get(offset + from, destination, destinationOffset, length);
+    }
+}
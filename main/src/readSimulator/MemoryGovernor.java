@@ -0,0 +1,127 @@
+package readSimulator;
+
+/*
+Bounds the data held by generated but not yet written chunks by estimated bytes instead of by chunk count.
+
+Generators reserve bytes before filling a chunk and wait while the budget is used up, writers give them back once the
+chunk is written. A chunk is always admitted when nothing else is in flight, so a budget smaller than one chunk slows
+the pipeline down but cannot stall it.
+
+The chunk size adapts to both sides: it is small enough that every ring slot can be filled within the budget at the
+observed bytes per read (which grows with read length and mutation rate), and small enough that a writer gets through
+a chunk in about TARGET_CHUNK_WRITE_NANOS at its observed speed.
+ */
+public class MemoryGovernor {
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final long TARGET_CHUNK_WRITE_NANOS = 50_000_000;
+    // weight of the newest observation in the moving averages
+    private static final double SMOOTHING = 0.2;
+
+    private final long budgetBytes;
+    private final int maxChunkSize;
+    private final int slots;
+    private final SimulationMetrics metrics;
+
+    private long bufferedBytes = 0;
+    private long peakBufferedBytes = 0;
+    private int inFlightChunks = 0;
+    private Throwable failure = null;
+
+    private volatile double bytesPerRead;
+    private volatile double writerReadsPerSecond = Double.POSITIVE_INFINITY;
+
+    public MemoryGovernor(long budgetBytes, int maxChunkSize, int slots, int readLength, double mutationRate,
+                          boolean qualities, SimulationMetrics metrics) {
+        this.budgetBytes = budgetBytes;
+        this.maxChunkSize = maxChunkSize;
+        this.slots = slots;
+        this.metrics = metrics;
+        // six ints per read, at least one region per mate, the expected mutations and the qualities of both mates with
+        // an error model, refined by observed chunks
+        this.bytesPerRead = 24 + 16 + 2 * readLength * (mutationRate / 100) * 5 + (qualities ? 2 * readLength : 0);
+    }
+
+    public int nextChunkSize() {
+        double byBudget = budgetBytes / (slots * bytesPerRead);
+        double byWriterSpeed = writerReadsPerSecond * TARGET_CHUNK_WRITE_NANOS / 1e9;
+        return (int) Math.max(MIN_CHUNK_SIZE, Math.min(maxChunkSize, Math.min(byBudget, byWriterSpeed)));
+    }
+
+    // reserve the estimated size of a chunk of the given number of reads, waits while the budget is exhausted
+    public synchronized long acquire(int reads) throws InterruptedException {
+        checkAborted();
+        long estimate = (long) (reads * bytesPerRead);
+        if (inFlightChunks > 0 && bufferedBytes + estimate > budgetBytes) {
+            SimulatorEvents.QueueStall event = new SimulatorEvents.QueueStall();
+            event.begin();
+            long startTime = System.nanoTime();
+            while (inFlightChunks > 0 && bufferedBytes + estimate > budgetBytes) {
+                checkAborted();
+                wait();
+            }
+            metrics.recordProducerBlocked(System.nanoTime() - startTime);
+            if (event.shouldCommit()) {
+                event.cause = "buffer budget";
+                event.readCount = reads;
+                event.commit();
+            }
+        }
+        inFlightChunks++;
+        add(estimate);
+        return estimate;
+    }
+
+    // replace the reservation by the actual size of the filled chunk
+    public synchronized long adjust(long reserved, long actualBytes, int reads) {
+        add(actualBytes - reserved);
+        if (reads > 0) bytesPerRead += SMOOTHING * ((double) actualBytes / reads - bytesPerRead);
+        return actualBytes;
+    }
+
+    public synchronized void release(long bytes, int reads, long writeNanos) {
+        inFlightChunks--;
+        bufferedBytes -= bytes;
+        if (writeNanos > 0 && reads > 0) {
+            double readsPerSecond = reads * 1e9 / writeNanos;
+            writerReadsPerSecond = Double.isInfinite(writerReadsPerSecond)
+                    ? readsPerSecond
+                    : writerReadsPerSecond + SMOOTHING * (readsPerSecond - writerReadsPerSecond);
+        }
+        notifyAll();
+    }
+
+    // waits until every acquired chunk has been written
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (inFlightChunks > 0) {
+            checkAborted();
+            wait();
+        }
+    }
+
+    // wakes every waiting generator with a SimulationAbortedException, chunks in flight will never be released
+    public synchronized void abort(Throwable cause) {
+        if (failure == null) failure = cause;
+        notifyAll();
+    }
+
+    private void checkAborted() {
+        if (failure != null) throw new SimulationAbortedException(failure);
+    }
+
+    private void add(long bytes) {
+        bufferedBytes += bytes;
+        peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    public synchronized long getPeakBufferedBytes() {
+        return peakBufferedBytes;
+    }
+}
@@ -0,0 +1,18 @@
+package readSimulator;
+
+/*
+Read-only view of a spliced transcript sequence, independent of where the bases are stored.
+ */
+public interface NucleotideSequence {
+    int length();
+
+    byte byteAt(int index);
+
+    void copy(int from, byte[] destination, int destinationOffset, int length);
+
+    // bases from..from+length-1 reverse complemented into destination
+    default void copyReverseComplement(int from, byte[] destination, int destinationOffset, int length) {
+        copy(from, destination, destinationOffset, length);
+        Transcript.reverseComplementInPlace(destination, destinationOffset, length);
+    }
+}
@@ -0,0 +1,185 @@
+package readSimulator;
+
+import java.util.Arrays;
+
+/*
+Sequence packed to 2 bits per base, 32 bases per long. Everything else is kept as runs, so soft-masked references and
+long N stretches cost a few ints per run instead of bytes per base:
+- case: runs of lower case letters; the bases inside are packed or stored as ambiguity in upper case
+- ambiguity: runs of one repeated byte that is not A, C, G or T in either case (N, other IUPAC codes), as start,
+  length and the upper case byte
+Unpacking always returns exactly the bases that were packed.
+ */
+public class PackedSequence implements NucleotideSequence {
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int code = 0; code < BASES.length; code++) {
+            CODES[BASES[code]] = (byte) code;
+            CODES[Character.toLowerCase(BASES[code])] = (byte) code;
+        }
+    }
+
+    private final long[] words;
+    private final int length;
+    // lower case runs lowerStarts[r] until lowerEnds[r] (exclusive), sorted and disjoint
+    private final int[] lowerStarts;
+    private final int[] lowerEnds;
+    // ambiguity runs ambiguityStarts[r] until ambiguityEnds[r] (exclusive) of ambiguityBases[r], sorted and disjoint
+    private final int[] ambiguityStarts;
+    private final int[] ambiguityEnds;
+    private final byte[] ambiguityBases;
+
+    private PackedSequence(long[] words, int length, int[] lowerStarts, int[] lowerEnds,
+                           int[] ambiguityStarts, int[] ambiguityEnds, byte[] ambiguityBases) {
+        this.words = words;
+        this.length = length;
+        this.lowerStarts = lowerStarts;
+        this.lowerEnds = lowerEnds;
+        this.ambiguityStarts = ambiguityStarts;
+        this.ambiguityEnds = ambiguityEnds;
+        this.ambiguityBases = ambiguityBases;
+    }
+
+    public static PackedSequence pack(byte[] bases) {
+        long[] words = new long[(bases.length + 31) >>> 5];
+        RunList lower = new RunList();
+        RunList ambiguity = new RunList();
+
+        for (int i = 0; i < bases.length; i++) {
+            byte base = bases[i];
+            boolean lowerCase = base >= 'a' && base <= 'z';
+            if (lowerCase) lower.add(i, (byte) 0);
+
+            int code = CODES[base & 0xFF];
+            if (code < 0) {
+                ambiguity.add(i, lowerCase ? (byte) (base - ('a' - 'A')) : base);
+                continue;
+            }
+            words[i >>> 5] |= (long) code << ((i & 31) << 1);
+        }
+
+        return new PackedSequence(words, bases.length, lower.starts(), lower.ends(),
+                ambiguity.starts(), ambiguity.ends(), ambiguity.bases());
+    }
+
+    // collects positions into runs of consecutive positions with the same byte
+    private static final class RunList {
+        private int[] starts = new int[4];
+        private int[] ends = new int[4];
+        private byte[] bases = new byte[4];
+        private int count = 0;
+
+        void add(int position, byte base) {
+            if (count > 0 && ends[count - 1] == position && bases[count - 1] == base) {
+                ends[count - 1]++;
+                return;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * count);
+                ends = Arrays.copyOf(ends, 2 * count);
+                bases = Arrays.copyOf(bases, 2 * count);
+            }
+            starts[count] = position;
+            ends[count] = position + 1;
+            bases[count++] = base;
+        }
+
+        int[] starts() {
+            return Arrays.copyOf(starts, count);
+        }
+
+        int[] ends() {
+            return Arrays.copyOf(ends, count);
+        }
+
+        byte[] bases() {
+            return Arrays.copyOf(bases, count);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public byte byteAt(int index) {
+        int run = firstRun(ambiguityStarts, ambiguityEnds, index);
+        byte base = run < ambiguityStarts.length && ambiguityStarts[run] <= index ? ambiguityBases[run] : BASES[code(index)];
+        run = firstRun(lowerStarts, lowerEnds, index);
+        return run < lowerStarts.length && lowerStarts[run] <= index ? (byte) (base + ('a' - 'A')) : base;
+    }
+
+    private int code(int index) {
+        return (int) (words[index >>> 5] >>> ((index & 31) << 1)) & 3;
+    }
+
+    @Override
+    public void copy(int from, byte[] destination, int destinationOffset, int length) {
+        int index = from;
+        int end = from + length;
+        int out = destinationOffset;
+
+        // decode whole words at a time once the start is aligned
+        while (index < end && (index & 31) != 0) {
+            destination[out++] = BASES[code(index++)];
+        }
+        while (end - index >= 32) {
+            long word = words[index >>> 5];
+            for (int shift = 0; shift < 64; shift += 2) {
+                destination[out++] = BASES[(int) (word >>> shift) & 3];
+            }
+            index += 32;
+        }
+        while (index < end) {
+            destination[out++] = BASES[code(index++)];
+        }
+
+        for (int r = firstRun(ambiguityStarts, ambiguityEnds, from); r < ambiguityStarts.length && ambiguityStarts[r] < end; r++) {
+            int runFrom = Math.max(from, ambiguityStarts[r]);
+            int runTo = Math.min(end, ambiguityEnds[r]);
+            Arrays.fill(destination, destinationOffset + runFrom - from, destinationOffset + runTo - from, ambiguityBases[r]);
+        }
+        for (int r = firstRun(lowerStarts, lowerEnds, from); r < lowerStarts.length && lowerStarts[r] < end; r++) {
+            int runTo = Math.min(end, lowerEnds[r]);
+            for (int i = Math.max(from, lowerStarts[r]); i < runTo; i++) {
+                destination[destinationOffset + i - from] += 'a' - 'A';
+            }
+        }
+    }
+
+    /*
+    Decode from..from+length-1 reverse complemented: the complement of a packed base is 3 - code, ambiguity runs are
+    complemented like in Transcript.complement. Complements are upper case, so the case runs do not apply.
+     */
+    @Override
+    public void copyReverseComplement(int from, byte[] destination, int destinationOffset, int length) {
+        int last = destinationOffset + length - 1;
+        for (int i = 0; i < length; i++) {
+            destination[last - i] = BASES[3 - code(from + i)];
+        }
+
+        int end = from + length;
+        for (int r = firstRun(ambiguityStarts, ambiguityEnds, from); r < ambiguityStarts.length && ambiguityStarts[r] < end; r++) {
+            int runFrom = Math.max(from, ambiguityStarts[r]);
+            int runTo = Math.min(end, ambiguityEnds[r]);
+            Arrays.fill(destination, last - (runTo - 1 - from), last - (runFrom - from) + 1, Transcript.complement(ambiguityBases[r]));
+        }
+    }
+
+    // index of the first run ending after position, runs.length if there is none
+    private static int firstRun(int[] starts, int[] ends, int position) {
+        int r = Arrays.binarySearch(starts, position);
+        if (r >= 0) return r;
+        r = -r - 1;
+        return r > 0 && ends[r - 1] > position ? r - 1 : r;
+    }
+
+    // bytes held by this sequence, excluding the object headers
+    public long storedBytes() {
+        return 8L * words.length + 8L * lowerStarts.length + 9L * ambiguityStarts.length;
+    }
+}
@@ -1,60 +1,104 @@
 package readSimulator;
 
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.io.*;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ParallelizedOutputWriter implements Runnable, AutoCloseable {
-    private final BlockingQueue<ReadGenerationEventChunk> queue;
-    private final BufferedWriter forwardWriter;
-    private final BufferedWriter reverseWriter;
-    private final BufferedWriter mappingInfoWriter;
-    private final AtomicLong id = new AtomicLong(0);
+    private final ChunkRingBuffer ringBuffer;
+    private final MemoryGovernor governor;
+    private final SimulationMetrics metrics;
+    private final ReadRecordEncoder encoder;
+    private final int shard;
+    // extents are only recorded for merging shards, taking a position ends the current BGZF block
+    private final boolean trackExtents;
+    private final List<ChunkExtent> extents = new ArrayList<>();
+    private final long[] headerEnds;
     private volatile boolean running = true;
-    private final String QUALITY_STRING;
-    public static final ReadGenerationEventChunk STOPPING_SIGNAL_CHUNK = new ReadGenerationEventChunk(null);
+    private final byte[] forwardRead;
+    private final byte[] reverseRead;
 
-    public ParallelizedOutputWriter(BlockingQueue<ReadGenerationEventChunk> queue, Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int readLength) throws IOException {
-        this.queue = queue;
-        this.forwardWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fwFilePath.toFile()), StandardCharsets.UTF_8), 1 << 16);
-        this.reverseWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rwFilePath.toFile()), StandardCharsets.UTF_8), 1 << 16);
-        this.mappingInfoWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(mappingInfoPath.toFile()), StandardCharsets.UTF_8), 1 << 16);
-        this.QUALITY_STRING = "I".repeat(readLength);
-        makeHeaders();
+    public ParallelizedOutputWriter(ChunkRingBuffer ringBuffer, MemoryGovernor governor, SimulationMetrics metrics, Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int shard, int readLength, boolean legacyWriter, BgzfCompressor compressor, boolean trackExtents) throws IOException {
+        this(ringBuffer,
+                governor,
+                metrics,
+                legacyWriter
+                        ? new WriterReadRecordEncoder(fwFilePath, rwFilePath, mappingInfoPath, readLength)
+                        : new AsciiReadRecordEncoder(fwFilePath, rwFilePath, mappingInfoPath, readLength, compressor),
+                shard,
+                readLength,
+                trackExtents);
     }
 
-    public void makeHeaders() throws IOException {
-        String mappingInfoHeader = "readid\tchr_id\tgene_id\ttranscript_id\tfw_regvec\trw_regvec\tt_fw_regvec\tt_rw_regvec\tfw_mut\trw_mut";
-        mappingInfoWriter.write(mappingInfoHeader);
-        mappingInfoWriter.newLine();
+    public ParallelizedOutputWriter(ChunkRingBuffer ringBuffer, MemoryGovernor governor, SimulationMetrics metrics, ReadRecordEncoder encoder, int shard, int readLength, boolean trackExtents) throws IOException {
+        this.ringBuffer = ringBuffer;
+        this.governor = governor;
+        this.metrics = metrics;
+        this.encoder = encoder;
+        this.shard = shard;
+        this.trackExtents = trackExtents;
+        this.forwardRead = new byte[readLength];
+        this.reverseRead = new byte[readLength];
+        encoder.makeHeaders();
+        this.headerEnds = trackExtents ? encoder.getOutputPositions() : null;
+    }
+
+    public long[] getHeaderEnds() {
+        return headerEnds;
+    }
+
+    // where each chunk ended up in this writer's files, used to merge shards in read id order; empty unless tracked
+    public List<ChunkExtent> getExtents() {
+        return extents;
     }
 
     @Override
     public void close() throws Exception {
         running = false;
-        forwardWriter.close();
-        reverseWriter.close();
-        mappingInfoWriter.close();
+        encoder.close();
     }
 
     @Override
     public void run() {
         try {
+            // a chunk starts where the previous one ended, so one position per chunk is enough
+            long[] start = headerEnds;
             while (running) {
-                ReadGenerationEventChunk currentChunk = queue.take();
-                if (currentChunk == STOPPING_SIGNAL_CHUNK) break;
+                ReadGenerationEventChunk currentChunk = ringBuffer.take();
+                if (currentChunk == null) break;
 
-                for (ReadGenerationEvent event : currentChunk.events()) {
-                    long entryId = id.incrementAndGet();
-                    writeFastqEntry(forwardWriter, entryId, event.getFwSeqeunce());
-                    writeFastqEntry(reverseWriter, entryId, event.getRwSequence());
-                    writeMappingInfoEvent(mappingInfoWriter, entryId, event);
+                SimulatorEvents.ChunkFlush event = new SimulatorEvents.ChunkFlush();
+                event.begin();
+                long startTime = System.nanoTime();
+                long encodedBefore = encoder.getBytesEncoded();
+                for (int i = 0; i < currentChunk.size(); i++) {
+                    long entryId = currentChunk.getFirstReadId() + i;
+                    currentChunk.materializeForwardRead(i, forwardRead);
+                    currentChunk.materializeReverseRead(i, reverseRead);
+                    encoder.writeReadPair(entryId, currentChunk, i, forwardRead, reverseRead);
+                }
+                if (trackExtents) {
+                    long[] end = encoder.getOutputPositions();
+                    extents.add(new ChunkExtent(currentChunk.getFirstReadId(), shard, start, end));
+                    start = end;
                 }
+                long bytes = encoder.getBytesEncoded() - encodedBefore;
+                metrics.recordWritten(currentChunk.size(), bytes);
+                if (event.shouldCommit()) {
+                    event.shard = shard;
+                    event.firstReadId = currentChunk.getFirstReadId();
+                    event.readCount = currentChunk.size();
+                    event.bytesWritten = bytes;
+                    event.commit();
+                }
+                governor.release(currentChunk.getBufferedBytes(), currentChunk.size(), System.nanoTime() - startTime);
+                ringBuffer.release(currentChunk);
             }
-        } catch (InterruptedException | IOException e) {
-            e.printStackTrace();
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            // stop the generators and the other writers instead of leaving them waiting for this one
+            ringBuffer.abort(e);
+            governor.abort(e);
 
         } finally {
             try {
@@ -64,40 +108,4 @@ public class ParallelizedOutputWriter implements Runnable, AutoCloseable {
         }
 
     }
-
-    public void writeFastqEntry(BufferedWriter writer, long id, byte[] seq) throws IOException {
-        writer.write("@");
-        writer.write(Long.toString(id));
-        writer.newLine();
-        writer.write(new String(seq));
-        writer.newLine();
-        writer.write('+');
-        writer.write(Long.toString(id));
-        writer.newLine();
-        writer.write(QUALITY_STRING);
-        writer.newLine();
-    }
-
-    public void writeMappingInfoEvent(BufferedWriter writer, long id, ReadGenerationEvent event) throws IOException {
-        writer.write(Long.toString(id));
-        writer.write("\t");
-        writer.write(event.getChromosome());
-        writer.write("\t");
-        writer.write(event.getGeneId());
-        writer.write("\t");
-        writer.write(event.getTranscriptId());
-        writer.write("\t");
-        writer.write(event.getFwRegVec());
-        writer.write("\t");
-        writer.write(event.getRwRegVec());
-        writer.write("\t");
-        writer.write(event.getTranscriptFwRegVec());
-        writer.write("\t");
-        writer.write(event.getTranscriptRwRegVec());
-        writer.write("\t");
-        writer.write(event.getFormattedFwMutations());
-        writer.write("\t");
-        writer.write(event.getFormattedRwMutations());
-        writer.newLine();
-    }
 }
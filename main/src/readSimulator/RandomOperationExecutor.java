@@ -1,45 +1,83 @@
 package readSimulator;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.SplittableRandom;
-
+/*
+Random numbers are drawn from a SplitMix64 stream hierarchy: the run seed is split per gene, the gene seed per
+transcript and the transcript seed per read. Every read has its own fragment and mutation stream, so the drawn values
+only depend on the seed and the position of the read inside its transcript, not on thread scheduling or chunk size.
+ */
 public class RandomOperationExecutor {
-    private final SplittableRandom rng = new SplittableRandom();
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
     private static final byte[] BASES = {'A','C','G','T'};
 
-    private double nextGaussian() {
-        double u1 = rng.nextDouble();
-        double u2 = rng.nextDouble();
-        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    private final long transcriptSeed;
+    private long state;
+
+    public RandomOperationExecutor(long transcriptSeed) {
+        this.transcriptSeed = transcriptSeed;
+        this.state = transcriptSeed;
+    }
+
+    // derive the seed of a named child stream (gene or transcript) from its parent seed
+    public static long streamSeed(long parentSeed, String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        return mix64(parentSeed ^ mix64(hash));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public void seekFragmentStream(long readIndex) {
+        state = mix64(transcriptSeed + GOLDEN_GAMMA * (2 * readIndex + 1));
     }
 
-    public void initRandomSamples(int n, double meanLength, double standardDeviation, int transcriptLength, int readLength,
+    public void seekMutationStream(long readIndex) {
+        state = mix64(transcriptSeed + GOLDEN_GAMMA * (2 * readIndex + 2));
+    }
+
+    private long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private int nextInt(int bound) {
+        int r = (int) (nextLong() >>> 32);
+        int m = bound - 1;
+        if ((bound & m) == 0) return r & m;
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = (int) (nextLong() >>> 33));
+        return r;
+    }
+
+    public void initRandomSamples(long firstReadIndex, int n, FragmentLengthSampler fragmentLengthSampler, int transcriptLength,
                                   int[] fragmentsLengths, int[] startPositions) {
         for (int i = 0; i < n; i++) {
-            int fragmentLength;
-            do {
-                double val = meanLength + standardDeviation * nextGaussian();
-                fragmentLength = (int) Math.round(val);
-            } while (fragmentLength <= readLength || fragmentLength >= transcriptLength);
+            seekFragmentStream(firstReadIndex + i);
+            int fragmentLength = fragmentLengthSampler.sample(nextDouble(), transcriptLength);
 
             fragmentsLengths[i] = fragmentLength;
 
             int maxStartPosition = transcriptLength - fragmentLength;
-            startPositions[i] = rng.nextInt(maxStartPosition);
+            startPositions[i] = nextInt(maxStartPosition);
         }
     }
 
-    public List<Integer> mutateInPlace(byte[] seq, double mutationRate) {
-        if (seq == null || mutationRate <= 0) return null;
-        List<Integer> ret = new ArrayList<>();
+    public void mutateInPlace(byte[] seq, double mutationRate, ReadGenerationEventChunk chunk) {
+        if (seq == null || mutationRate <= 0) return;
 
         if (mutationRate >= 100.0) {
             for (int i = 0; i < seq.length; i++){
                 seq[i] = randomDifferentBase(seq[i]);
-                ret.add(i);
+                chunk.addMutation(i, seq[i]);
             }
-            return ret ;
+            return;
         }
 
         final double log1mP = Math.log(1.0 - mutationRate / 100.0);
@@ -48,24 +86,31 @@ public class RandomOperationExecutor {
 
         while (i < L) {
             // geometric skip
-            double u = rng.nextDouble();
+            double u = 1.0 - nextDouble();
             int skip = (int) (Math.log(u) / log1mP);
             i += skip;
             if (i >= L) break;
             seq[i] = randomDifferentBase(seq[i]);
-            ret.add(i);
+            chunk.addMutation(i, seq[i]);
             i++;  // move past the mutated site
         }
+    }
 
-        return ret;
+    // uniform draw in [0, 1) from this executor's stream, used by the sequencing error model
+    public double nextUniform() {
+        return nextDouble();
     }
 
-    private byte randomDifferentBase(byte b) {
-        byte old = (byte) Character.toUpperCase((char) b);
-        byte newBase;
-        do {
-            newBase = BASES[rng.nextInt(4)];
-        } while (newBase == old);
-        return newBase;
+    // one of the three other bases, or any base if b is not one of A, C, G, T
+    byte randomDifferentBase(byte b) {
+        int code = switch (b) {
+            case 'A', 'a' -> 0;
+            case 'C', 'c' -> 1;
+            case 'G', 'g' -> 2;
+            case 'T', 't' -> 3;
+            default -> -1;
+        };
+        if (code < 0) return BASES[nextInt(4)];
+        return BASES[(code + 1 + nextInt(3)) & 3];
     }
 }
@@ -3,6 +3,7 @@ package readSimulator;
 import java.io.*;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.BiPredicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,7 +12,7 @@ public class ReadCounts {
     private static final Logger _LOGGER = Logger.getLogger(ReadCounts.class.getName());
 
     public ReadCounts(Path filePath) {
-        countsInfo = new HashMap<>();
+        countsInfo = new LinkedHashMap<>();
 
         try (BufferedReader br = new BufferedReader(new FileReader(filePath.toFile()))) {
             String line;
@@ -27,7 +28,7 @@ public class ReadCounts {
                 int count = Integer.parseInt(parts[2]);
 
                 countsInfo
-                        .computeIfAbsent(geneId, k -> new HashMap<>())
+                        .computeIfAbsent(geneId, k -> new LinkedHashMap<>())
                         .put(transcriptId, count);
             }
         } catch (IOException e) {
@@ -47,4 +48,22 @@ public class ReadCounts {
             transcriptIds.addAll(transcripts.keySet());
         return transcriptIds;
     }
+
+    /*
+    Reserve a contiguous block of read ids for every simulated transcript, in the order of the counts file.
+    Read ids then only depend on the input and not on the order in which chunks reach the writers.
+     */
+    public HashMap<String, Long> assignFirstReadIds(BiPredicate<String, String> isSimulated) {
+        HashMap<String, Long> firstReadIds = new HashMap<>();
+        long nextId = 1;
+
+        for (Map.Entry<String, HashMap<String, Integer>> gene : countsInfo.entrySet()) {
+            for (Map.Entry<String, Integer> transcript : gene.getValue().entrySet()) {
+                if (!isSimulated.test(gene.getKey(), transcript.getKey())) continue;
+                firstReadIds.put(transcript.getKey(), nextId);
+                nextId += transcript.getValue();
+            }
+        }
+        return firstReadIds;
+    }
 }
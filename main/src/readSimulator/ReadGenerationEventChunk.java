@@ -1,5 +1,288 @@
 package readSimulator;
 
-import java.util.List;
+import java.util.Arrays;
 
-public record ReadGenerationEventChunk(List<ReadGenerationEvent> events) {}
+/*
+Column oriented batch of read pairs drawn from a single transcript.
+Reads are not materialized here: every read pair is described by its start position and fragment length in the
+shared transcript sequence, its genomic regions and the mutations applied to both mates. Regions and mutations of all
+reads are stored back to back in flat arrays, the *Ends arrays hold the exclusive end index of each mate.
+ */
+public class ReadGenerationEventChunk {
+    private String geneId;
+    private Transcript transcript;
+    private long firstReadId;
+    private final int readLength;
+    private int size;
+
+    private int[] startPositions;
+    private int[] fragmentLengths;
+
+    private int[] fwRegionEnds;
+    private int[] rwRegionEnds;
+    private int[] regions;
+    private int regionCount;
+
+    private int[] fwMutationEnds;
+    private int[] rwMutationEnds;
+    private int[] mutationPositions;
+    private byte[] mutationBases;
+    private int mutationCount;
+    private long bufferedBytes;
+
+    // per base qualities of both mates, only used with a SequencingErrorModel
+    private byte[] qualities = new byte[0];
+    private boolean hasQualities;
+
+    public ReadGenerationEventChunk(String geneId, Transcript transcript, long firstReadId, int readLength, int size) {
+        this.readLength = readLength;
+        this.startPositions = this.fragmentLengths = new int[0];
+        this.fwRegionEnds = this.rwRegionEnds = this.fwMutationEnds = this.rwMutationEnds = new int[0];
+        this.regions = new int[4];
+        this.mutationPositions = new int[16];
+        this.mutationBases = new byte[16];
+        reset(geneId, transcript, firstReadId, size);
+    }
+
+    // empty slot for ChunkRingBuffer, filled in place through reset
+    public ReadGenerationEventChunk(int readLength) {
+        this(null, null, 0, readLength, 0);
+    }
+
+    /*
+    Reuse this chunk for another batch of reads. The per read arrays only grow here, so a recycled chunk stops
+    allocating once it has seen the largest batch; trimToCapacity shrinks them again.
+     */
+    public final void reset(String geneId, Transcript transcript, long firstReadId, int size) {
+        this.geneId = geneId;
+        this.transcript = transcript;
+        this.firstReadId = firstReadId;
+        this.size = size;
+        this.regionCount = 0;
+        this.mutationCount = 0;
+        this.hasQualities = false;
+
+        if (startPositions.length < size) {
+            startPositions = new int[size];
+            fragmentLengths = new int[size];
+            fwRegionEnds = new int[size];
+            rwRegionEnds = new int[size];
+            fwMutationEnds = new int[size];
+            rwMutationEnds = new int[size];
+        }
+        if (regions.length < 4 * size) regions = new int[4 * size];
+    }
+
+    /*
+    Give memory back once the chunk size has dropped: arrays more than twice as large as capacity reads need are
+    reallocated for capacity reads. Otherwise every ring slot would keep the arrays of the largest chunk it ever held
+    and the heap would stay at slots x peak chunk size, whatever the MemoryGovernor budget says. Only for a claimed
+    slot, before reset.
+     */
+    public void trimToCapacity(int capacity) {
+        int length = startPositions.length;
+        if (length <= 2 * capacity) return;
+
+        startPositions = new int[capacity];
+        fragmentLengths = new int[capacity];
+        fwRegionEnds = new int[capacity];
+        rwRegionEnds = new int[capacity];
+        fwMutationEnds = new int[capacity];
+        rwMutationEnds = new int[capacity];
+        if (regions.length > 4 * capacity) regions = new int[4 * capacity];
+
+        // mutations grow with the number of reads
+        int mutations = (int) Math.max(16, (long) mutationPositions.length * capacity / length);
+        if (mutationPositions.length > mutations) {
+            mutationPositions = new int[mutations];
+            mutationBases = new byte[mutations];
+        }
+        int qualityLength = 2 * capacity * readLength;
+        if (qualities.length > 2 * qualityLength) qualities = new byte[qualityLength];
+    }
+
+    // heap bytes used by the reads of this chunk, see MemoryGovernor
+    public long estimatedBytes() {
+        return 24L * size + 4L * regionCount + 5L * mutationCount + (hasQualities ? 2L * size * readLength : 0);
+    }
+
+    // make room for the qualities of every mate of this chunk
+    public void enableQualities() {
+        int length = 2 * size * readLength;
+        if (qualities.length < length) qualities = new byte[length];
+        hasQualities = true;
+    }
+
+    public boolean hasQualities() {
+        return hasQualities;
+    }
+
+    public byte[] getQualities() {
+        return qualities;
+    }
+
+    public int forwardQualityOffset(int read) {
+        return 2 * read * readLength;
+    }
+
+    public int reverseQualityOffset(int read) {
+        return (2 * read + 1) * readLength;
+    }
+
+    // bytes accounted for this chunk by the MemoryGovernor while it is in flight
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    public void setBufferedBytes(long bufferedBytes) {
+        this.bufferedBytes = bufferedBytes;
+    }
+
+    // drop the transcript reference so a released slot does not keep a sequence alive
+    public void clear() {
+        this.geneId = null;
+        this.transcript = null;
+    }
+
+    public String getGeneId() {
+        return geneId;
+    }
+
+    public Transcript getTranscript() {
+        return transcript;
+    }
+
+    // read ids of a chunk are consecutive, starting at this id
+    public long getFirstReadId() {
+        return firstReadId;
+    }
+
+    public int getReadLength() {
+        return readLength;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] getStartPositions() {
+        return startPositions;
+    }
+
+    public int[] getFragmentLengths() {
+        return fragmentLengths;
+    }
+
+    public int getStartPosition(int read) {
+        return startPositions[read];
+    }
+
+    public int getFragmentLength(int read) {
+        return fragmentLengths[read];
+    }
+
+    public void addRegion(int genomicStart, int genomicEnd) {
+        if (regionCount + 2 > regions.length) regions = Arrays.copyOf(regions, regions.length * 2);
+        regions[regionCount++] = genomicStart;
+        regions[regionCount++] = genomicEnd;
+    }
+
+    public void addMutation(int position, byte base) {
+        if (mutationCount == mutationPositions.length) {
+            mutationPositions = Arrays.copyOf(mutationPositions, mutationCount * 2);
+            mutationBases = Arrays.copyOf(mutationBases, mutationCount * 2);
+        }
+        mutationPositions[mutationCount] = position;
+        mutationBases[mutationCount] = base;
+        mutationCount++;
+    }
+
+    public int getMutationCount() {
+        return mutationCount;
+    }
+
+    // insertion sort of the mutations from index on by position, the segment of a single mate is tiny
+    public void sortMutations(int from) {
+        for (int i = from + 1; i < mutationCount; i++) {
+            int position = mutationPositions[i];
+            byte base = mutationBases[i];
+            int j = i - 1;
+            while (j >= from && mutationPositions[j] > position) {
+                mutationPositions[j + 1] = mutationPositions[j];
+                mutationBases[j + 1] = mutationBases[j];
+                j--;
+            }
+            mutationPositions[j + 1] = position;
+            mutationBases[j + 1] = base;
+        }
+    }
+
+    // everything added since the previous mate belongs to the forward mate of the given read
+    public void closeForwardMate(int read) {
+        fwRegionEnds[read] = regionCount;
+        fwMutationEnds[read] = mutationCount;
+    }
+
+    // everything added since the forward mate belongs to the reverse mate of the given read
+    public void closeReverseMate(int read) {
+        rwRegionEnds[read] = regionCount;
+        rwMutationEnds[read] = mutationCount;
+    }
+
+    public int forwardRegionsFrom(int read) {
+        return read == 0 ? 0 : rwRegionEnds[read - 1];
+    }
+
+    public int forwardRegionsTo(int read) {
+        return fwRegionEnds[read];
+    }
+
+    public int reverseRegionsFrom(int read) {
+        return fwRegionEnds[read];
+    }
+
+    public int reverseRegionsTo(int read) {
+        return rwRegionEnds[read];
+    }
+
+    // regions are stored as flat (start, end) pairs, index is the position in the flat array
+    public int regionAt(int index) {
+        return regions[index];
+    }
+
+    public int forwardMutationsFrom(int read) {
+        return read == 0 ? 0 : rwMutationEnds[read - 1];
+    }
+
+    public int forwardMutationsTo(int read) {
+        return fwMutationEnds[read];
+    }
+
+    public int reverseMutationsFrom(int read) {
+        return fwMutationEnds[read];
+    }
+
+    public int reverseMutationsTo(int read) {
+        return rwMutationEnds[read];
+    }
+
+    public int mutationPositionAt(int index) {
+        return mutationPositions[index];
+    }
+
+    public void materializeForwardRead(int read, byte[] destination) {
+        transcript.copyForwardRead(startPositions[read], destination);
+        applyMutations(destination, forwardMutationsFrom(read), forwardMutationsTo(read));
+    }
+
+    public void materializeReverseRead(int read, byte[] destination) {
+        transcript.copyReverseRead(startPositions[read] + fragmentLengths[read], destination);
+        applyMutations(destination, reverseMutationsFrom(read), reverseMutationsTo(read));
+    }
+
+    private void applyMutations(byte[] read, int from, int to) {
+        for (int i = from; i < to; i++) {
+            read[mutationPositions[i]] = mutationBases[i];
+        }
+    }
+}
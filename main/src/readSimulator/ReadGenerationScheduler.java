@@ -0,0 +1,145 @@
+package readSimulator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+Schedules read generation on a dedicated ForkJoinPool at (transcript, read range) granularity.
+
+Every simulated transcript becomes a task, largest first. Tasks holding more than SPLIT_CHUNKS chunks of reads split
+themselves in halves, so a highly expressed transcript is spread over all workers by work stealing instead of
+running alone on one core at the end. The busy time of every worker is recorded to report utilization, time spent
+waiting for a ring slot or buffer budget is reported separately as blocked.
+ */
+public class ReadGenerationScheduler implements AutoCloseable {
+    // a task keeps at most this many chunks of reads for itself before splitting
+    private static final int SPLIT_CHUNKS = 4;
+
+    private final ForkJoinPool pool;
+    private final ReadCounts readCounts;
+    private final int fragmentLength;
+    private final double fragmentSD;
+    private final int readLength;
+    private final double mutationRate;
+    private final SequencingErrorModel errorModel;
+    private final long seed;
+    private final ChunkRingBuffer ringBuffer;
+    private final MemoryGovernor governor;
+    private final SimulationMetrics metrics;
+
+    // busy nanos, generated reads and blocked nanos per worker, each entry is only written by its own thread
+    private final ConcurrentHashMap<Thread, long[]> workerStats = new ConcurrentHashMap<>();
+    private long wallNanos = 0;
+
+    public ReadGenerationScheduler(int threads, ReadCounts readCounts, int fragmentLength, double fragmentSD,
+                                   int readLength, double mutationRate, SequencingErrorModel errorModel, long seed,
+                                   ChunkRingBuffer ringBuffer, MemoryGovernor governor, SimulationMetrics metrics) {
+        this.pool = new ForkJoinPool(threads);
+        this.readCounts = readCounts;
+        this.fragmentLength = fragmentLength;
+        this.fragmentSD = fragmentSD;
+        this.readLength = readLength;
+        this.mutationRate = mutationRate;
+        this.errorModel = errorModel;
+        this.seed = seed;
+        this.ringBuffer = ringBuffer;
+        this.governor = governor;
+        this.metrics = metrics;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // generate all reads of the given genes, returns once every chunk has been published
+    public void run(Collection<Gene> genes, HashMap<String, Long> firstReadIds) {
+        List<ReadRangeTask> tasks = new ArrayList<>();
+        for (Gene gene : genes) {
+            HashMap<String, Integer> counts = readCounts.getCounts().get(gene.getGeneId());
+            for (Transcript transcript : gene.getTranscripts()) {
+                String transcriptId = transcript.getTranscriptId();
+                int count = counts.get(transcriptId);
+                // transcripts without a read id block are not simulated
+                if (count > 0 && firstReadIds.containsKey(transcriptId)) {
+                    tasks.add(new ReadRangeTask(gene, transcriptId, firstReadIds.get(transcriptId), 0, count));
+                }
+            }
+        }
+        // largest first, so the big transcripts are split while small ones fill the gaps
+        tasks.sort(Comparator.comparingInt((ReadRangeTask task) -> task.count).reversed());
+
+        long startTime = System.nanoTime();
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        wallNanos += System.nanoTime() - startTime;
+    }
+
+    public void printUtilization() {
+        System.out.printf("✔ Read generation on %d threads in %d ms:%n", pool.getParallelism(), wallNanos / 1_000_000);
+        List<Map.Entry<Thread, long[]>> entries = new ArrayList<>(workerStats.entrySet());
+        entries.sort(Comparator.comparing(entry -> entry.getKey().getName()));
+        for (Map.Entry<Thread, long[]> entry : entries) {
+            long[] stats = entry.getValue();
+            System.out.printf("   %s: %5.1f%% busy, %d reads, %5.1f%% blocked%n", entry.getKey().getName(),
+                    wallNanos == 0 ? 0 : 100.0 * stats[0] / wallNanos, stats[1],
+                    wallNanos == 0 ? 0 : 100.0 * stats[2] / wallNanos);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // tasks only live inside the pool, RecursiveAction being Serializable does not make them so
+    @SuppressWarnings("serial")
+    private class ReadRangeTask extends RecursiveAction {
+        private final Gene gene;
+        private final String transcriptId;
+        private final long firstReadId;
+        private final long firstReadIndex;
+        private final int count;
+
+        ReadRangeTask(Gene gene, String transcriptId, long firstReadId, long firstReadIndex, int count) {
+            this.gene = gene;
+            this.transcriptId = transcriptId;
+            this.firstReadId = firstReadId;
+            this.firstReadIndex = firstReadIndex;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            if (count > (long) SPLIT_CHUNKS * governor.nextChunkSize()) {
+                int half = count / 2;
+                invokeAll(new ReadRangeTask(gene, transcriptId, firstReadId, firstReadIndex, half),
+                        new ReadRangeTask(gene, transcriptId, firstReadId + half, firstReadIndex + half, count - half));
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            long blockedBefore = metrics.getThreadBlockedNanos();
+            try {
+                gene.generateEventsForReadRange(transcriptId, firstReadId, firstReadIndex, count,
+                        fragmentLength, fragmentSD, readLength, mutationRate, errorModel, seed, ringBuffer, governor);
+            } catch (InterruptedException e) {
+                // a range cut short must not pass for a finished one: stop the pipeline and fail invoke()
+                ringBuffer.abort(e);
+                governor.abort(e);
+                throw new SimulationAbortedException(e);
+            }
+
+            long blocked = metrics.getThreadBlockedNanos() - blockedBefore;
+            long[] stats = workerStats.computeIfAbsent(Thread.currentThread(), thread -> new long[3]);
+            stats[0] += System.nanoTime() - startTime - blocked;
+            stats[1] += count;
+            stats[2] += blocked;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package readSimulator;
+
+import java.util.Arrays;
+
+/*
+View of one simulated read pair for in-process consumers, see ReadPairSpliterator and ReadPairPublisher.
+
+The same instance is moved from read to read and the byte arrays it returns are reused, so nothing is allocated per
+read. Everything returned is only valid until the consumer callback returns; copy what has to be kept.
+Positions follow read.mappinginfo: fragment and mutation positions are 0-based, regions are genomic start/end pairs.
+ */
+public class ReadPair {
+    private final byte[] forwardRead;
+    private final byte[] reverseRead;
+    private final byte[] forwardQualities;
+    private final byte[] reverseQualities;
+    private final byte[] constantQualities;
+
+    private ReadGenerationEventChunk chunk;
+    private int read;
+    private boolean forwardMaterialized;
+    private boolean reverseMaterialized;
+
+    public ReadPair(int readLength) {
+        this.forwardRead = new byte[readLength];
+        this.reverseRead = new byte[readLength];
+        this.forwardQualities = new byte[readLength];
+        this.reverseQualities = new byte[readLength];
+        this.constantQualities = new byte[readLength];
+        Arrays.fill(constantQualities, (byte) 'I');
+    }
+
+    // point this view at a read of a chunk, sequences are materialized on first access
+    void moveTo(ReadGenerationEventChunk chunk, int read) {
+        this.chunk = chunk;
+        this.read = read;
+        this.forwardMaterialized = false;
+        this.reverseMaterialized = false;
+    }
+
+    public long getId() {
+        return chunk.getFirstReadId() + read;
+    }
+
+    public String getGeneId() {
+        return chunk.getGeneId();
+    }
+
+    public String getTranscriptId() {
+        return chunk.getTranscript().getTranscriptId();
+    }
+
+    public String getChromosome() {
+        return chunk.getTranscript().getChromosome();
+    }
+
+    public int getReadLength() {
+        return forwardRead.length;
+    }
+
+    // start of the fragment in the transcript sequence
+    public int getFragmentStart() {
+        return chunk.getStartPosition(read);
+    }
+
+    public int getFragmentLength() {
+        return chunk.getFragmentLength(read);
+    }
+
+    public byte[] getForwardRead() {
+        if (!forwardMaterialized) {
+            chunk.materializeForwardRead(read, forwardRead);
+            forwardMaterialized = true;
+        }
+        return forwardRead;
+    }
+
+    public byte[] getReverseRead() {
+        if (!reverseMaterialized) {
+            chunk.materializeReverseRead(read, reverseRead);
+            reverseMaterialized = true;
+        }
+        return reverseRead;
+    }
+
+    // Phred+33 qualities, constant 'I' unless the simulator runs with a SequencingErrorModel
+    public byte[] getForwardQualities() {
+        if (!chunk.hasQualities()) return constantQualities;
+        System.arraycopy(chunk.getQualities(), chunk.forwardQualityOffset(read), forwardQualities, 0, forwardQualities.length);
+        return forwardQualities;
+    }
+
+    public byte[] getReverseQualities() {
+        if (!chunk.hasQualities()) return constantQualities;
+        System.arraycopy(chunk.getQualities(), chunk.reverseQualityOffset(read), reverseQualities, 0, reverseQualities.length);
+        return reverseQualities;
+    }
+
+    public int getForwardRegionCount() {
+        return (chunk.forwardRegionsTo(read) - chunk.forwardRegionsFrom(read)) / 2;
+    }
+
+    public int getForwardRegionStart(int region) {
+        return chunk.regionAt(chunk.forwardRegionsFrom(read) + 2 * region);
+    }
+
+    public int getForwardRegionEnd(int region) {
+        return chunk.regionAt(chunk.forwardRegionsFrom(read) + 2 * region + 1);
+    }
+
+    public int getReverseRegionCount() {
+        return (chunk.reverseRegionsTo(read) - chunk.reverseRegionsFrom(read)) / 2;
+    }
+
+    public int getReverseRegionStart(int region) {
+        return chunk.regionAt(chunk.reverseRegionsFrom(read) + 2 * region);
+    }
+
+    public int getReverseRegionEnd(int region) {
+        return chunk.regionAt(chunk.reverseRegionsFrom(read) + 2 * region + 1);
+    }
+
+    public int getForwardMutationCount() {
+        return chunk.forwardMutationsTo(read) - chunk.forwardMutationsFrom(read);
+    }
+
+    // position in the forward read of its i-th mutation, ascending
+    public int getForwardMutationPosition(int i) {
+        return chunk.mutationPositionAt(chunk.forwardMutationsFrom(read) + i);
+    }
+
+    public int getReverseMutationCount() {
+        return chunk.reverseMutationsTo(read) - chunk.reverseMutationsFrom(read);
+    }
+
+    public int getReverseMutationPosition(int i) {
+        return chunk.mutationPositionAt(chunk.reverseMutationsFrom(read) + i);
+    }
+}
@@ -0,0 +1,102 @@
+package readSimulator;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+Backpressured source of simulated read pairs. Every subscriber gets all reads, in read id order, generated lazily as
+it requests them, so nothing is produced ahead of demand.
+
+onNext is called on the given executor, never concurrently for one subscriber, and always receives the same reused
+ReadPair instance; see ReadPair for how long its contents stay valid.
+ */
+public class ReadPairPublisher implements Flow.Publisher<ReadPair> {
+    private final Supplier<ReadPairSpliterator> source;
+    private final Executor executor;
+
+    public ReadPairPublisher(Supplier<ReadPairSpliterator> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ReadPair> subscriber) {
+        ReadPairSubscription subscription = new ReadPairSubscription(subscriber, source.get());
+        subscriber.onSubscribe(subscription);
+    }
+
+    private class ReadPairSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ReadPair> subscriber;
+        private final ReadPairSpliterator reads;
+        private final AtomicLong demand = new AtomicLong();
+        // drain loop guard: only the caller that raises it from 0 schedules delivery
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private volatile boolean done = false;
+        private Throwable invalidRequest = null;
+
+        ReadPairSubscription(Flow.Subscriber<? super ReadPair> subscriber, ReadPairSpliterator reads) {
+            this.subscriber = subscriber;
+            this.reads = reads;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " read pairs, must be positive");
+            } else {
+                // saturates at Long.MAX_VALUE, which means unbounded
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        private void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            int signals = 1;
+            do {
+                if (done) return;
+                if (invalidRequest != null) {
+                    fail(invalidRequest);
+                    return;
+                }
+
+                long requested = demand.get();
+                long delivered = 0;
+                try {
+                    while (delivered < requested && !done) {
+                        if (!reads.tryAdvance(subscriber::onNext)) {
+                            done = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        delivered++;
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                }
+                if (requested != Long.MAX_VALUE) demand.addAndGet(-delivered);
+
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        private void fail(Throwable t) {
+            done = true;
+            subscriber.onError(t);
+        }
+    }
+}
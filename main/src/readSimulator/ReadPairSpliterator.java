@@ -0,0 +1,118 @@
+package readSimulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+Pulls simulated read pairs out of the transcriptome without writer threads, files or text formatting.
+
+Reads are generated on demand, one chunk at a time, into a single recycled chunk per spliterator and handed out
+through one reused ReadPair. Splitting hands a prefix of the remaining read ranges to a new spliterator, halving a
+transcript's range if it is the only one left, so parallel streams spread even one highly expressed transcript over
+all workers. Every read has its own random streams, so the reads do not depend on how the ranges were split and a
+sequential traversal yields them in read id order, exactly as written with -concat.
+ */
+public class ReadPairSpliterator implements Spliterator<ReadPair> {
+    private static final int CHUNK_SIZE = 4096;
+
+    // reads firstReadIndex..firstReadIndex+count-1 of a transcript, with ids starting at firstReadId
+    public record ReadRange(Gene gene, String transcriptId, long firstReadId, long firstReadIndex, int count) {}
+
+    private final List<ReadRange> ranges;
+    private int nextRange = 0;
+    private long remaining;
+
+    private final int fragmentLength;
+    private final double fragmentSD;
+    private final int readLength;
+    private final double mutationRate;
+    private final SequencingErrorModel errorModel;
+    private final long seed;
+
+    private final ReadGenerationEventChunk chunk;
+    private final ReadPair pair;
+    private int nextRead = 0;
+
+    // ranges must be sorted by read id
+    public ReadPairSpliterator(List<ReadRange> ranges, int fragmentLength, double fragmentSD, int readLength,
+                               double mutationRate, SequencingErrorModel errorModel, long seed) {
+        this.ranges = new ArrayList<>(ranges);
+        this.fragmentLength = fragmentLength;
+        this.fragmentSD = fragmentSD;
+        this.readLength = readLength;
+        this.mutationRate = mutationRate;
+        this.errorModel = errorModel;
+        this.seed = seed;
+        this.chunk = new ReadGenerationEventChunk(readLength);
+        this.pair = new ReadPair(readLength);
+        for (ReadRange range : ranges) {
+            remaining += range.count();
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ReadPair> action) {
+        if (nextRead == chunk.size()) {
+            if (nextRange == ranges.size()) return false;
+            fillNextChunk();
+        }
+        pair.moveTo(chunk, nextRead++);
+        remaining--;
+        action.accept(pair);
+        return true;
+    }
+
+    private void fillNextChunk() {
+        ReadRange range = ranges.get(nextRange);
+        int batch = Math.min(range.count(), CHUNK_SIZE);
+        range.gene().fillRandomReadChunkForTranscript(chunk, range.transcriptId(), range.firstReadId(),
+                range.firstReadIndex(), batch, fragmentLength, fragmentSD, readLength, mutationRate, errorModel, seed);
+
+        if (batch == range.count()) {
+            nextRange++;
+        } else {
+            ranges.set(nextRange, new ReadRange(range.gene(), range.transcriptId(), range.firstReadId() + batch,
+                    range.firstReadIndex() + batch, range.count() - batch));
+        }
+        nextRead = 0;
+    }
+
+    @Override
+    public Spliterator<ReadPair> trySplit() {
+        // the reads of a started chunk stay here, only untouched ranges are handed out
+        if (nextRead < chunk.size() || remaining < 2L * CHUNK_SIZE) return null;
+
+        List<ReadRange> prefix = new ArrayList<>();
+        long half = remaining / 2;
+        long taken = 0;
+        while (nextRange < ranges.size() - 1 && taken + ranges.get(nextRange).count() <= half) {
+            taken += ranges.get(nextRange).count();
+            prefix.add(ranges.get(nextRange++));
+        }
+        if (prefix.isEmpty()) {
+            // a single range holds more than half of the reads, split it in the middle
+            ReadRange range = ranges.get(nextRange);
+            int head = (int) Math.min(range.count() / 2, half);
+            if (head == 0) return null;
+            prefix.add(new ReadRange(range.gene(), range.transcriptId(), range.firstReadId(), range.firstReadIndex(), head));
+            ranges.set(nextRange, new ReadRange(range.gene(), range.transcriptId(), range.firstReadId() + head,
+                    range.firstReadIndex() + head, range.count() - head));
+            taken = head;
+        }
+
+        remaining -= taken;
+        return new ReadPairSpliterator(prefix, fragmentLength, fragmentSD, readLength, mutationRate, errorModel, seed);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
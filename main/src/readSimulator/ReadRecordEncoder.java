@@ -0,0 +1,18 @@
+package readSimulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface ReadRecordEncoder extends Closeable {
+    String MAPPING_INFO_HEADER = "readid\tchr_id\tgene_id\ttranscript_id\tfw_regvec\trw_regvec\tt_fw_regvec\tt_rw_regvec\tfw_mut\trw_mut";
+
+    void makeHeaders() throws IOException;
+
+    void writeReadPair(long id, ReadGenerationEventChunk chunk, int read, byte[] forwardRead, byte[] reverseRead) throws IOException;
+
+    // number of bytes written so far to the forward, reverse and mappinginfo output, in that order
+    long[] getOutputPositions() throws IOException;
+
+    // uncompressed bytes encoded so far to all outputs together, counted without flushing them
+    long getBytesEncoded() throws IOException;
+}
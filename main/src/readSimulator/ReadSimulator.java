@@ -2,24 +2,52 @@ package readSimulator;
 
 import org.apache.commons.cli.*;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ReadSimulator {
 
     private final ReadCounts readCounts;
-    private final Gtf gtf;
     private final IndexedFastaReader reader;
+    private final Path gtfPath;
+    private final Path fastaPath;
+    private Gtf gtf;
 
     private final int readLength;
     private final int fragmentLength;
     private final double fragmentSD;
     private final double mutationRate;
     private final Path outputDir;
+    // upper bound, the actual chunk size is picked by the MemoryGovernor
     private final int CHUNK_SIZE = 30_000;
+    private boolean legacyWriter = false;
+    private int writerThreads = 1;
+    private int generatorThreads = Runtime.getRuntime().availableProcessors();
+    private boolean concatenateShards = false;
+    private long seed = ThreadLocalRandom.current().nextLong();
+    private Path transcriptomeCachePath = null;
+    private boolean packedSequences = false;
+    private boolean streaming = false;
+    private SequencingErrorModel errorModel = null;
+    private long maxBufferBytes = 256L << 20;
+    // BGZF output is written when compressionThreads > 0
+    private int compressionThreads = 0;
+    private int compressionLevel = 6;
+    // FASTQ destinations other than fw.fastq/rw.fastq in the output directory, e.g. named pipes
+    private Path forwardOutputPath = null;
+    private Path reverseOutputPath = null;
+    private boolean interleavedStdout = false;
+    // seconds between progress lines, 0 disables them
+    private long progressIntervalSeconds = 10;
+    // JSON metrics report, null writes simulation.metrics.json to the output directory
+    private Path metricsReportPath = null;
+    private SimulationMetrics metrics = new SimulationMetrics();
+    // read ranges of all simulated transcripts for the in-process API, built on first use
+    private List<ReadPairSpliterator.ReadRange> readRanges = null;
 
     public ReadSimulator(
             Path readCountsPath,
@@ -30,12 +58,14 @@ public class ReadSimulator {
             int fragmentLength,
             double fragmentSD,
             double mutationRate,
-            Path outputDir
+            Path outputDir,
+            boolean memoryMappedFasta
     ) throws IOException {
 
         this.readCounts = new ReadCounts(readCountsPath);
-        this.reader = new IndexedFastaReader(fidxPath, fastaPath);
-        this.gtf = new Gtf(gtfPath, readCounts.getTranscriptIds());
+        this.reader = new IndexedFastaReader(fidxPath, fastaPath, memoryMappedFasta);
+        this.gtfPath = gtfPath;
+        this.fastaPath = fastaPath;
         this.readLength = readLength;
         this.fragmentLength = fragmentLength;
         this.fragmentSD = fragmentSD;
@@ -49,6 +79,117 @@ public class ReadSimulator {
         this.reader.openChannel();
     }
 
+    public void setLegacyWriter(boolean legacyWriter) {
+        this.legacyWriter = legacyWriter;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    public void setGeneratorThreads(int generatorThreads) {
+        this.generatorThreads = generatorThreads;
+    }
+
+    public void setConcatenateShards(boolean concatenateShards) {
+        this.concatenateShards = concatenateShards;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setTranscriptomeCachePath(Path transcriptomeCachePath) {
+        this.transcriptomeCachePath = transcriptomeCachePath;
+    }
+
+    public void setPackedSequences(boolean packedSequences) {
+        this.packedSequences = packedSequences;
+    }
+
+    // upper bound for the estimated bytes of generated but not yet written reads
+    public void setMaxBufferBytes(long maxBufferBytes) {
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    // position dependent errors and qualities instead of constant 'I' qualities, null to disable
+    public void setErrorModel(SequencingErrorModel errorModel) {
+        this.errorModel = errorModel;
+    }
+
+    // write fw.fastq.gz, rw.fastq.gz and read.mappinginfo.gz, compressing blocks on the given number of threads
+    public void setBgzfCompression(int compressionThreads, int compressionLevel) {
+        this.compressionThreads = compressionThreads;
+        this.compressionLevel = compressionLevel;
+    }
+
+    // write the forward and reverse FASTQ to these paths, e.g. FIFOs read by an aligner; null keeps the default file
+    public void setFastqOutputPaths(Path forwardOutputPath, Path reverseOutputPath) {
+        this.forwardOutputPath = forwardOutputPath;
+        this.reverseOutputPath = reverseOutputPath;
+    }
+
+    // write interleaved FASTQ to standard output instead of fw.fastq and rw.fastq
+    public void setInterleavedStdout(boolean interleavedStdout) {
+        this.interleavedStdout = interleavedStdout;
+    }
+
+    public void setProgressInterval(long progressIntervalSeconds) {
+        this.progressIntervalSeconds = progressIntervalSeconds;
+    }
+
+    public void setMetricsReportPath(Path metricsReportPath) {
+        this.metricsReportPath = metricsReportPath;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /*
+    Parse the GTF and build all transcript sequences from the FASTA, or restore both from the transcriptome snapshot if
+    one was made from the same input files. A missing or stale snapshot is (re)written after building.
+     */
+    private void loadTranscriptome() throws IOException {
+        Set<String> transcriptIds = new HashSet<>(readCounts.getTranscriptIds());
+        TranscriptomeCache cache = null;
+
+        if (transcriptomeCachePath != null) {
+            long startTime = System.nanoTime();
+            metrics.startPhase("load_snapshot");
+            cache = new TranscriptomeCache(transcriptomeCachePath, gtfPath, fastaPath);
+            List<Gene> cachedGenes = cache.load(transcriptIds);
+            if (cachedGenes != null) {
+                gtf = new Gtf(cachedGenes);
+                System.out.printf("✔ Loaded transcriptome snapshot %s in %d ms%n",
+                        transcriptomeCachePath, (System.nanoTime() - startTime) / 1_000_000);
+                return;
+            }
+        }
+
+        long parseStart = System.nanoTime();
+        metrics.startPhase("parse_gtf");
+        gtf = new Gtf(gtfPath, transcriptIds);
+        System.out.printf("✔ Parsed GTF in %d ms (%d genes)%n", (System.nanoTime() - parseStart) / 1_000_000, gtf.getGenes().size());
+        // sequences are built per partition while streaming
+        if (streaming) return;
+
+        metrics.startPhase("build_sequences");
+        TranscriptomeBuilder transcriptomeBuilder = new TranscriptomeBuilder(reader);
+        transcriptomeBuilder.setPackedSequences(packedSequences);
+        transcriptomeBuilder.build(gtf.getGenes());
+        System.out.printf("✔ Built transcript sequences in %d ms (%d bytes read in %d ranges, %d bytes stored%s)%n",
+                transcriptomeBuilder.getBuildMillis(), transcriptomeBuilder.getBytesRead(), transcriptomeBuilder.getRangeCount(),
+                transcriptomeBuilder.getSequenceBytes(), packedSequences ? " packed" : "");
+        printBlockCacheStats();
+
+        if (cache != null) {
+            metrics.startPhase("write_snapshot");
+            cache.write(transcriptIds, gtf.getGenes());
+            System.out.printf("✔ Wrote transcriptome snapshot %s%n", transcriptomeCachePath);
+        }
+    }
+
     public void runSimulation() throws IOException {
         System.out.printf(
                 "▶ Starting simulation with parameters:%n" +
@@ -56,62 +197,281 @@ public class ReadSimulator {
                         "   Fragment length (mean): %d%n" +
                         "   Fragment SD: %.2f%n" +
                         "   Mutation rate: %.4f%n" +
+                        "   Seed: %d%n" +
                         "   Output directory: %s%n",
-                readLength, fragmentLength, fragmentSD, mutationRate, outputDir.toAbsolutePath()
+                readLength, fragmentLength, fragmentSD, mutationRate, seed, outputDir.toAbsolutePath()
         );
+        long simulationStart = System.nanoTime();
+        metrics = new SimulationMetrics();
+
+        // enough slots for every generator and writer to hold one chunk while others wait in the ring
+        int slots = 4 * (generatorThreads + writerThreads);
+        ChunkRingBuffer ringBuffer = new ChunkRingBuffer(slots, readLength, metrics);
+        MemoryGovernor governor = new MemoryGovernor(maxBufferBytes, CHUNK_SIZE, ringBuffer.getSlotCount(), readLength, mutationRate,
+                errorModel != null, metrics);
+        metrics.startProgress(progressIntervalSeconds, ringBuffer.getSlotCount(), ringBuffer::getQueuedChunks, governor::getBufferedBytes);
+        try {
+            simulate(ringBuffer, governor);
+        } finally {
+            metrics.stopProgress();
+        }
+        // interrupted: the writers are stopped, but the output is incomplete
+        if (Thread.currentThread().isInterrupted()) return;
+
+        Path reportPath = metricsReportPath != null ? metricsReportPath : outputDir.resolve("simulation.metrics.json");
+        metrics.writeJson(reportPath);
+        System.out.printf("✔ Simulation finished in %d ms, metrics written to %s%n",
+                (System.nanoTime() - simulationStart) / 1_000_000, reportPath);
+    }
+
+    private void simulate(ChunkRingBuffer ringBuffer, MemoryGovernor governor) throws IOException {
+        loadTranscriptome();
+        ReadGenerationScheduler scheduler = new ReadGenerationScheduler(generatorThreads, readCounts, fragmentLength,
+                fragmentSD, readLength, mutationRate, errorModel, seed, ringBuffer, governor, metrics);
+
+        BgzfCompressor compressor = compressionThreads > 0 ? new BgzfCompressor(compressionThreads, compressionLevel) : null;
+        String extension = compressor != null ? ".gz" : "";
+        Path[] outputPaths = {
+                outputDir.resolve("fw.fastq" + extension),
+                outputDir.resolve("rw.fastq" + extension),
+                outputDir.resolve("read.mappinginfo" + extension)
+        };
+        if (forwardOutputPath != null) outputPaths[0] = forwardOutputPath;
+        if (reverseOutputPath != null) outputPaths[1] = reverseOutputPath;
+
+        // every writer owns its own set of output files unless a single writer writes the final files directly
+        boolean sharded = writerThreads > 1 || concatenateShards;
+        Path[][] shardPaths = new Path[writerThreads][outputPaths.length];
+        List<ParallelizedOutputWriter> writers = new ArrayList<>();
+        List<Thread> writerThreadList = new ArrayList<>();
+        boolean interrupted = false;
 
-        gtf.buildGenesTranscriptSequences(reader);
-        int QUEUE_CAPACITY = 500;
-        BlockingQueue<ReadGenerationEventChunk> queue  = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        try {
+            for (int shard = 0; shard < writerThreads; shard++) {
+                for (int file = 0; file < outputPaths.length; file++) {
+                    shardPaths[shard][file] = sharded ? ShardConcatenator.shardPath(outputPaths[file], shard) : outputPaths[file];
+                }
+                ParallelizedOutputWriter writer = interleavedStdout
+                        ? new ParallelizedOutputWriter(ringBuffer, governor, metrics,
+                                AsciiReadRecordEncoder.interleavedStandardOutput(shardPaths[shard][2], readLength, compressor), shard, readLength,
+                                concatenateShards)
+                        : forwardOutputPath != null || reverseOutputPath != null
+                        ? new ParallelizedOutputWriter(ringBuffer, governor, metrics,
+                                AsciiReadRecordEncoder.lockstepPairs(shardPaths[shard][0], shardPaths[shard][1], shardPaths[shard][2], readLength, compressor),
+                                shard, readLength, concatenateShards)
+                        : new ParallelizedOutputWriter(ringBuffer, governor, metrics,
+                                shardPaths[shard][0], shardPaths[shard][1], shardPaths[shard][2], shard, readLength, legacyWriter, compressor,
+                                concatenateShards);
+                Thread writerThread = new Thread(writer);
+                writerThread.start();
+                writers.add(writer);
+                writerThreadList.add(writerThread);
+            }
+
+            Set<String> unsampleable = findUnsampleableTranscripts();
+            HashMap<String, Long> firstReadIds = readCounts.assignFirstReadIds(
+                    (geneId, transcriptId) -> gtf.hasTranscript(geneId, transcriptId) && !unsampleable.contains(transcriptId));
+            metrics.setTotalReads(countSimulatedReads(firstReadIds));
+            metrics.startPhase("read_generation");
+            if (streaming) {
+                streamPartitions(firstReadIds, scheduler, governor);
+            } else {
+                scheduler.run(gtf.getGenes(), firstReadIds);
+            }
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            // a writer failure reaches the generators as SimulationAbortedException, the first failure is kept
+            interrupted = e instanceof InterruptedException;
+            ringBuffer.abort(e);
+            governor.abort(e);
+        } finally {
+            scheduler.close();
+        }
 
-        Path fwPath = outputDir.resolve("fw.fastq");
-        Path rwPath = outputDir.resolve("rw.fastq");
-        Path mappingInfoPath = outputDir.resolve("read.mappinginfo");
+        metrics.startPhase("writer_drain");
+        ringBuffer.close();
+        interrupted |= joinWriters(writerThreadList, ringBuffer, governor);
+        if (compressor != null) compressor.close();
+
+        Throwable failure = ringBuffer.getFailure();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // a generator or writer thread was interrupted, not the simulation: its output is incomplete
+        if (failure instanceof InterruptedException)
+            throw new InterruptedIOException("A generator or writer thread was interrupted, the output is incomplete");
+        if (failure instanceof IOException e) throw e;
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure != null) throw new IOException(failure);
+
+        if (concatenateShards) {
+            List<ChunkExtent> extents = new ArrayList<>();
+            for (ParallelizedOutputWriter writer : writers) {
+                extents.addAll(writer.getExtents());
+            }
+            long mergeStart = System.nanoTime();
+            metrics.startPhase("merge_shards");
+            ShardConcatenator.concatenate(outputPaths, shardPaths, writers.get(0).getHeaderEnds(), extents,
+                    compressor != null ? BgzfCompressor.EOF_BLOCK : new byte[0]);
+            System.out.printf("✔ Merged %d writer shards in %d ms%n", writerThreads, (System.nanoTime() - mergeStart) / 1_000_000);
+        }
+        metrics.endPhase();
+
+        scheduler.printUtilization();
+        System.out.printf("✔ Peak buffered reads: %.1f MB of %d MB budget (last chunk size %d)%n",
+                governor.getPeakBufferedBytes() / 1048576.0, governor.getBudgetBytes() >> 20, governor.nextChunkSize());
+        System.out.printf("✔ Wrote %d reads, %.1f MB%n", metrics.getReadsWritten(), metrics.getBytesWritten() / 1048576.0);
+    }
 
-        ParallelizedOutputWriter writer = new ParallelizedOutputWriter(queue, fwPath, rwPath, mappingInfoPath, readLength);
-        Thread writerThread = new Thread(writer);
-        writerThread.start();
     /*
+    Waits for all writers to finish. An interrupt aborts them instead of leaving non-daemon threads behind with open
+    files, the writers notice within one back-off step and are still waited for. Returns whether it was interrupted.
+     */
+    private static boolean joinWriters(List<Thread> writerThreads, ChunkRingBuffer ringBuffer, MemoryGovernor governor) {
+        boolean interrupted = false;
+        for (Thread writerThread : writerThreads) {
+            while (true) {
+                try {
+                    writerThread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    ringBuffer.abort(e);
+                    governor.abort(e);
+                }
+            }
+        }
+        return interrupted;
+    }
+
+    private long countSimulatedReads(HashMap<String, Long> firstReadIds) {
+        long total = 0;
         for (Gene gene : gtf.getGenes()) {
-            try {
-                gene.generateEventsForAllTranscripts(
-                        readCounts.getCounts().get(gene.getGeneId()),
-                        fragmentLength,
-                        fragmentSD,
-                        readLength,
-                        mutationRate,
-                        queue,
-                        CHUNK_SIZE
-                );
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            HashMap<String, Integer> counts = readCounts.getCounts().get(gene.getGeneId());
+            for (Transcript transcript : gene.getTranscripts()) {
+                if (firstReadIds.containsKey(transcript.getTranscriptId())) total += counts.get(transcript.getTranscriptId());
             }
         }
-    */
-
-        gtf.getGenes().parallelStream().forEach(gene -> {
-            try {
-                gene.generateEventsForAllTranscripts(
-                        readCounts.getCounts().get(gene.getGeneId()),
-                        fragmentLength,
-                        fragmentSD,
-                        readLength,
-                        mutationRate,
-                        queue,
-                        CHUNK_SIZE
-                );
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        return total;
+    }
+
+    /*
+    In-process read source for embedding the simulator: the same read pairs runSimulation writes for this seed, in read
+    id order, generated on demand without writer threads, files or text formatting. Wrap it with
+    StreamSupport.stream(readPairs(), true) for parallel consumption. Not available in streaming mode.
+     */
+    public ReadPairSpliterator readPairs() throws IOException {
+        return new ReadPairSpliterator(readRanges(), fragmentLength, fragmentSD, readLength, mutationRate, errorModel, seed);
+    }
+
+    // backpressured variant of readPairs, every subscriber receives all read pairs on the given executor
+    public ReadPairPublisher readPairPublisher(Executor executor) throws IOException {
+        List<ReadPairSpliterator.ReadRange> ranges = readRanges();
+        return new ReadPairPublisher(() -> new ReadPairSpliterator(ranges,
+                fragmentLength, fragmentSD, readLength, mutationRate, errorModel, seed), executor);
+    }
+
+    private synchronized List<ReadPairSpliterator.ReadRange> readRanges() throws IOException {
+        if (readRanges != null) return readRanges;
+        if (streaming) throw new IllegalStateException("Read pairs need the whole transcriptome and are not available in streaming mode");
+        if (gtf == null) loadTranscriptome();
+
+        Set<String> unsampleable = findUnsampleableTranscripts();
+        HashMap<String, Long> firstReadIds = readCounts.assignFirstReadIds(
+                (geneId, transcriptId) -> gtf.hasTranscript(geneId, transcriptId) && !unsampleable.contains(transcriptId));
+
+        List<ReadPairSpliterator.ReadRange> ranges = new ArrayList<>();
+        for (Gene gene : gtf.getGenes()) {
+            HashMap<String, Integer> counts = readCounts.getCounts().get(gene.getGeneId());
+            for (Transcript transcript : gene.getTranscripts()) {
+                String transcriptId = transcript.getTranscriptId();
+                int count = counts.get(transcriptId);
+                if (count > 0 && firstReadIds.containsKey(transcriptId)) {
+                    ranges.add(new ReadPairSpliterator.ReadRange(gene, transcriptId, firstReadIds.get(transcriptId), 0, count));
+                }
             }
-        });
+        }
+        ranges.sort(Comparator.comparingLong(ReadPairSpliterator.ReadRange::firstReadId));
+        readRanges = List.copyOf(ranges);
+        return readRanges;
+    }
 
+    /*
+    Transcripts with reads that are too short for any fragment longer than the read length. They would never yield a
+    valid fragment, so they are reported here and get no reads instead of stalling the sampler.
+     */
+    private Set<String> findUnsampleableTranscripts() {
+        FragmentLengthSampler sampler = FragmentLengthSampler.of(fragmentLength, fragmentSD, readLength);
+        Set<String> unsampleable = new TreeSet<>();
 
-        try {
-            queue.put(ParallelizedOutputWriter.STOPPING_SIGNAL_CHUNK);
-            writerThread.join();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        for (Gene gene : gtf.getGenes()) {
+            HashMap<String, Integer> counts = readCounts.getCounts().get(gene.getGeneId());
+            for (Transcript transcript : gene.getTranscripts()) {
+                Integer count = counts == null ? null : counts.get(transcript.getTranscriptId());
+                if (count == null || count == 0) continue;
+
+                // in streaming mode sequences are not built yet, their length is known from exons and FASTA index
+                int length = transcript.getSequence() != null
+                        ? transcript.length()
+                        : TranscriptomeBuilder.sequenceLength(reader, transcript);
+                if (!sampler.canSample(length)) unsampleable.add(transcript.getTranscriptId());
+            }
+        }
+
+        if (!unsampleable.isEmpty()) {
+            System.out.printf("❌ Skipping %d transcripts that cannot produce a fragment longer than the read length: %s%n",
+                    unsampleable.size(), String.join(", ", unsampleable));
         }
+        return unsampleable;
+    }
+
+    /*
+    Streaming mode: one chromosome at a time, in FASTA order, its transcripts are built, their reads generated and
+    written, and then the sequences are released again. Peak sequence memory is bounded by the largest chromosome
+    instead of the whole transcriptome. Read ids are pre-assigned, so the output is the same as without streaming.
+     */
+    private void streamPartitions(HashMap<String, Long> firstReadIds,
+                                  ReadGenerationScheduler scheduler,
+                                  MemoryGovernor governor) throws InterruptedException {
+        TreeMap<Long, List<Gene>> partitions = new TreeMap<>();
+        Map<String, Long> partitionKeys = new HashMap<>();
+        for (Gene gene : gtf.getGenes()) {
+            long key = partitionKeys.computeIfAbsent(gene.getChromosome(), chromosome -> {
+                FastaIndexEntry indexEntry = reader.getIndexEntry(chromosome);
+                // chromosomes missing from the index yield empty sequences, they are handled last
+                return indexEntry == null ? Long.MAX_VALUE - partitionKeys.size() : indexEntry.offset();
+            });
+            partitions.computeIfAbsent(key, k -> new ArrayList<>()).add(gene);
+        }
+
+        long largestPartitionBytes = 0;
+        for (List<Gene> partition : partitions.values()) {
+            TranscriptomeBuilder transcriptomeBuilder = new TranscriptomeBuilder(reader);
+            transcriptomeBuilder.setPackedSequences(packedSequences);
+            transcriptomeBuilder.build(partition);
+            largestPartitionBytes = Math.max(largestPartitionBytes, transcriptomeBuilder.getSequenceBytes());
+
+            // chunks still waiting in the ring buffer reference their transcript sequence until they are written
+            scheduler.run(partition, firstReadIds);
+            governor.awaitIdle();
+
+            for (Gene gene : partition) {
+                for (Transcript transcript : gene.getTranscripts()) {
+                    transcript.setSequence(null);
+                }
+            }
+            reader.releaseChromosome(partition.get(0).getChromosome());
+        }
+
+        System.out.printf("✔ Streamed %d chromosome partitions, largest held %d bytes of sequence%s%n",
+                partitions.size(), largestPartitionBytes, packedSequences ? " packed" : "");
+        printBlockCacheStats();
+    }
+
+    private void printBlockCacheStats() {
+        if (!reader.isCompressed()) return;
+        System.out.printf("✔ BGZF FASTA: %d block lookups, %d served from the block cache%n",
+                reader.getBlockReads(), reader.getBlockCacheHits());
     }
 
     public static void main(String[] args) {
@@ -180,6 +540,112 @@ public class ReadSimulator {
                 .required()
                 .build());
 
+        options.addOption(Option.builder("mmap")
+                .desc("Memory-map the FASTA file and extract exons lock-free instead of seeking a shared channel")
+                .build());
+
+        options.addOption(Option.builder("writers")
+                .hasArg()
+                .argName("int")
+                .desc("Number of writer threads, each writing its own fw/rw/mappinginfo shard (default 1)")
+                .build());
+
+        options.addOption(Option.builder("threads")
+                .hasArg()
+                .argName("int")
+                .desc("Number of read generation threads (default: number of cores)")
+                .build());
+
+        options.addOption(Option.builder("concat")
+                .desc("Merge the writer shards into single fw.fastq, rw.fastq and read.mappinginfo files ordered by read id")
+                .build());
+
+        options.addOption(Option.builder("seed")
+                .hasArg()
+                .argName("long")
+                .desc("Seed of the random number generator; together with -concat the output is byte-identical " +
+                        "for any number of threads, writers and chunk size (random seed if omitted)")
+                .build());
+
+        options.addOption(Option.builder("legacywriter")
+                .desc("Write output through the character based BufferedWriter path instead of the byte encoder")
+                .build());
+
+        options.addOption(Option.builder("packed")
+                .desc("Keep transcript sequences 2-bit packed (N and other codes in a side table) to cut sequence memory 4x")
+                .build());
+
+        options.addOption(Option.builder("errorprofile")
+                .hasArg()
+                .argName("path")
+                .desc("Tab separated cycle, Phred quality and count table; draws per cycle qualities and matching " +
+                        "sequencing errors instead of constant qualities")
+                .build());
+
+        options.addOption(Option.builder("maxbuffermb")
+                .hasArg()
+                .argName("int")
+                .desc("Memory budget in MB for generated reads waiting to be written; chunk size adapts to it (default 256)")
+                .build());
+
+        options.addOption(Option.builder("bgzf")
+                .desc("Write BGZF compressed fw.fastq.gz, rw.fastq.gz and read.mappinginfo.gz (readable by gzip, " +
+                        "blocks compressed in parallel); with -concat and -seed the decompressed output is identical")
+                .build());
+
+        options.addOption(Option.builder("compressionthreads")
+                .hasArg()
+                .argName("int")
+                .desc("Number of BGZF compression threads shared by all output files (default: number of cores)")
+                .build());
+
+        options.addOption(Option.builder("compressionlevel")
+                .hasArg()
+                .argName("int")
+                .desc("Deflate level of the BGZF blocks, 0-9 (default 6)")
+                .build());
+
+        options.addOption(Option.builder("fwout")
+                .hasArg()
+                .argName("path")
+                .desc("Forward FASTQ destination instead of fw.fastq in the output directory, e.g. a named pipe (mkfifo) " +
+                        "read by an aligner; needs a single writer without -concat")
+                .build());
+
+        options.addOption(Option.builder("rwout")
+                .hasArg()
+                .argName("path")
+                .desc("Reverse FASTQ destination instead of rw.fastq in the output directory, e.g. a named pipe")
+                .build());
+
+        options.addOption(Option.builder("stdout")
+                .desc("Write interleaved FASTQ (forward, then reverse record of every pair) to standard output and " +
+                        "progress messages to standard error; read.mappinginfo is still written to the output directory")
+                .build());
+
+        options.addOption(Option.builder("streaming")
+                .desc("Build, simulate and release transcripts one chromosome at a time to bound sequence memory")
+                .build());
+
+        options.addOption(Option.builder("progress")
+                .hasArg()
+                .argName("seconds")
+                .desc("Seconds between progress lines with reads written, throughput and ETA, 0 to disable (default 10)")
+                .build());
+
+        options.addOption(Option.builder("metrics")
+                .hasArg()
+                .argName("path")
+                .desc("JSON report of phase timings and counters (default simulation.metrics.json in the output directory)")
+                .build());
+
+        options.addOption(Option.builder("transcriptomecache")
+                .hasArg()
+                .argName("path")
+                .desc("Binary transcriptome snapshot; loaded instead of parsing GTF and FASTA if it matches the inputs, " +
+                        "written otherwise")
+                .build());
+
         CommandLineParser parser = new DefaultParser();
         HelpFormatter formatter = new HelpFormatter();
 
@@ -196,14 +662,72 @@ public class ReadSimulator {
             int fragmentLength  = Integer.parseInt(cmd.getOptionValue("frlength"));
             double fragmentSD   = Double.parseDouble(cmd.getOptionValue("SD"));
             double mutationRate = Double.parseDouble(cmd.getOptionValue("mutationrate"));
+            int writerThreads   = Integer.parseInt(cmd.getOptionValue("writers", "1"));
+            int threads         = Integer.parseInt(cmd.getOptionValue("threads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            long maxBufferMb    = Long.parseLong(cmd.getOptionValue("maxbuffermb", "256"));
+            int compressionThreads = Integer.parseInt(cmd.getOptionValue("compressionthreads",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            int compressionLevel   = Integer.parseInt(cmd.getOptionValue("compressionlevel", "6"));
+            long progressSeconds   = Long.parseLong(cmd.getOptionValue("progress", "10"));
 
             if (mutationRate < 0 || mutationRate > 1)
                 throw new IllegalArgumentException("Mutation rate must be between 0 and 1");
+            if (writerThreads < 1)
+                throw new IllegalArgumentException("Number of writers must be at least 1");
+            if (threads < 1)
+                throw new IllegalArgumentException("Number of threads must be at least 1");
+            if (maxBufferMb < 1)
+                throw new IllegalArgumentException("Buffer budget must be at least 1 MB");
+            if (cmd.hasOption("streaming") && cmd.hasOption("transcriptomecache"))
+                throw new IllegalArgumentException("-streaming builds sequences per chromosome and cannot use -transcriptomecache");
+            if (cmd.hasOption("bgzf") && cmd.hasOption("legacywriter"))
+                throw new IllegalArgumentException("-bgzf is only supported by the byte encoder, not by -legacywriter");
+            boolean pipedOutput = cmd.hasOption("stdout") || cmd.hasOption("fwout") || cmd.hasOption("rwout");
+            if (pipedOutput && (writerThreads > 1 || cmd.hasOption("concat")))
+                throw new IllegalArgumentException("-stdout, -fwout and -rwout stream from a single writer and cannot be used with -writers or -concat");
+            if (cmd.hasOption("stdout") && (cmd.hasOption("fwout") || cmd.hasOption("rwout")))
+                throw new IllegalArgumentException("-stdout writes both mates and cannot be combined with -fwout or -rwout");
+            if (pipedOutput && cmd.hasOption("legacywriter"))
+                throw new IllegalArgumentException("-stdout, -fwout and -rwout are only supported by the byte encoder, not by -legacywriter");
+            if (compressionThreads < 1)
+                throw new IllegalArgumentException("Number of compression threads must be at least 1");
+            if (compressionLevel < 0 || compressionLevel > 9)
+                throw new IllegalArgumentException("Compression level must be between 0 and 9");
+            if (progressSeconds < 0)
+                throw new IllegalArgumentException("Progress interval must not be negative");
+
+            // standard output carries the reads, everything printed goes to standard error instead
+            if (cmd.hasOption("stdout"))
+                System.setOut(System.err);
 
             ReadSimulator simulator = new ReadSimulator(
                     readCountsPath, fastaPath, fidxPath, gtfPath,
-                    readLength, fragmentLength, fragmentSD, mutationRate, outputDir
+                    readLength, fragmentLength, fragmentSD, mutationRate, outputDir,
+                    cmd.hasOption("mmap")
             );
+            simulator.setLegacyWriter(cmd.hasOption("legacywriter"));
+            simulator.setWriterThreads(writerThreads);
+            simulator.setGeneratorThreads(threads);
+            simulator.setConcatenateShards(cmd.hasOption("concat"));
+            if (cmd.hasOption("seed"))
+                simulator.setSeed(Long.parseLong(cmd.getOptionValue("seed")));
+            simulator.setPackedSequences(cmd.hasOption("packed"));
+            simulator.setStreaming(cmd.hasOption("streaming"));
+            simulator.setInterleavedStdout(cmd.hasOption("stdout"));
+            simulator.setFastqOutputPaths(
+                    cmd.hasOption("fwout") ? Paths.get(cmd.getOptionValue("fwout")) : null,
+                    cmd.hasOption("rwout") ? Paths.get(cmd.getOptionValue("rwout")) : null);
+            if (cmd.hasOption("bgzf"))
+                simulator.setBgzfCompression(compressionThreads, compressionLevel);
+            if (cmd.hasOption("errorprofile"))
+                simulator.setErrorModel(new SequencingErrorModel(Paths.get(cmd.getOptionValue("errorprofile"))));
+            simulator.setMaxBufferBytes(maxBufferMb << 20);
+            simulator.setProgressInterval(progressSeconds);
+            if (cmd.hasOption("metrics"))
+                simulator.setMetricsReportPath(Paths.get(cmd.getOptionValue("metrics")));
+            if (cmd.hasOption("transcriptomecache"))
+                simulator.setTranscriptomeCachePath(Paths.get(cmd.getOptionValue("transcriptomecache")));
             simulator.runSimulation();
 
         } catch (ParseException e) {
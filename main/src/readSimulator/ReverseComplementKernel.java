@@ -0,0 +1,24 @@
+package readSimulator;
+
+/*
+Reverse complement of a byte range in place. The Vector API implementation is only used if the incubator module is
+present, e.g. with --add-modules jdk.incubator.vector, otherwise the scalar lookup table implementation is used.
+Set -DreadSimulator.scalarKernels=true to force the scalar one.
+ */
+public interface ReverseComplementKernel {
+    void reverseComplement(byte[] sequence, int offset, int length);
+
+    static ReverseComplementKernel load() {
+        if (!Boolean.getBoolean("readSimulator.scalarKernels")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded reflectively so the class never links against a missing module
+                return (ReverseComplementKernel) Class.forName("readSimulator.VectorReverseComplement")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.out.println("Vector API unavailable, using scalar reverse complement: " + e);
+            }
+        }
+        return new ScalarReverseComplement();
+    }
+}
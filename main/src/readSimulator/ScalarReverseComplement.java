@@ -0,0 +1,32 @@
+package readSimulator;
+
+public class ScalarReverseComplement implements ReverseComplementKernel {
+    private static final byte[] COMPLEMENT = new byte[256];
+
+    static {
+        java.util.Arrays.fill(COMPLEMENT, (byte) 'N');
+        byte[] bases = {'A', 'C', 'G', 'T', 'U'};
+        byte[] complements = {'T', 'G', 'C', 'A', 'A'};
+        for (int i = 0; i < bases.length; i++) {
+            COMPLEMENT[bases[i]] = complements[i];
+            COMPLEMENT[Character.toLowerCase(bases[i])] = complements[i];
+        }
+    }
+
+    // upper case complement, anything that is not a base becomes N
+    public static byte complement(byte base) {
+        return COMPLEMENT[base & 0xFF];
+    }
+
+    @Override
+    public void reverseComplement(byte[] sequence, int offset, int length) {
+        int left = offset;
+        int right = offset + length - 1;
+
+        while (left <= right) {
+            byte leftComplement = COMPLEMENT[sequence[left] & 0xFF];
+            sequence[left++] = COMPLEMENT[sequence[right] & 0xFF];
+            sequence[right--] = leftComplement;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package readSimulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/*
+Position dependent sequencing errors and qualities learned from an empirical profile.
+
+The profile is a tab separated file with the columns cycle (1-based position in the read), Phred quality and count;
+empty lines and lines starting with '#' are skipped. For every cycle the observed qualities are compiled into an
+alias table, so drawing the quality of a base costs one uniform value. A base with quality Q is then a sequencing
+error with probability 10^(-Q/10). Reads longer than the profile reuse the distribution of its last cycle.
+ */
+public class SequencingErrorModel {
+    private static final int PHRED_OFFSET = 33;
+    private static final int MAX_QUALITY = 93;
+
+    private final AliasTable[] cycleTables;
+    private final byte[][] cycleQualities;
+    private final double[][] cycleErrorProbabilities;
+
+    public SequencingErrorModel(Path profilePath) throws IOException {
+        TreeMap<Integer, TreeMap<Integer, Long>> counts = new TreeMap<>();
+
+        try (BufferedReader br = Files.newBufferedReader(profilePath)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("cycle")) continue;
+
+                String[] parts = line.split("\t");
+                if (parts.length < 3)
+                    throw new IOException("Error profile line " + lineNumber + ": expected cycle, quality and count");
+
+                int cycle = Integer.parseInt(parts[0].trim());
+                int quality = Integer.parseInt(parts[1].trim());
+                long count = Long.parseLong(parts[2].trim());
+                if (cycle < 1 || quality < 0 || quality > MAX_QUALITY || count < 0)
+                    throw new IOException("Error profile line " + lineNumber + ": value out of range");
+
+                counts.computeIfAbsent(cycle, k -> new TreeMap<>()).merge(quality, count, Long::sum);
+            }
+        }
+        if (counts.isEmpty()) throw new IOException("Error profile " + profilePath + " has no entries");
+
+        int cycles = counts.lastKey();
+        cycleTables = new AliasTable[cycles];
+        cycleQualities = new byte[cycles][];
+        cycleErrorProbabilities = new double[cycles][];
+
+        // cycles missing from the profile reuse the previous cycle, the first present one for leading gaps
+        TreeMap<Integer, Long> previous = counts.firstEntry().getValue();
+        for (int cycle = 1; cycle <= cycles; cycle++) {
+            TreeMap<Integer, Long> qualities = counts.getOrDefault(cycle, previous);
+            compileCycle(cycle - 1, qualities);
+            previous = qualities;
+        }
+    }
+
+    private void compileCycle(int index, TreeMap<Integer, Long> qualityCounts) {
+        List<Integer> qualities = new ArrayList<>(qualityCounts.keySet());
+        double[] weights = new double[qualities.size()];
+        byte[] phred = new byte[qualities.size()];
+        double[] errorProbabilities = new double[qualities.size()];
+
+        for (int i = 0; i < qualities.size(); i++) {
+            int quality = qualities.get(i);
+            weights[i] = qualityCounts.get(quality);
+            phred[i] = (byte) (quality + PHRED_OFFSET);
+            errorProbabilities[i] = Math.pow(10, -quality / 10.0);
+        }
+
+        cycleTables[index] = new AliasTable(weights);
+        cycleQualities[index] = phred;
+        cycleErrorProbabilities[index] = errorProbabilities;
+    }
+
+    /*
+    Draw a quality for every base of the read into qualities starting at qualityOffset and substitute the bases that
+    turn out as errors. Errors are recorded in the chunk like mutations; bases that are already mutated keep their
+    base and only get a quality.
+     */
+    public void apply(byte[] read, byte[] qualities, int qualityOffset, int mutatedFrom,
+                      ReadGenerationEventChunk chunk, RandomOperationExecutor roe) {
+        int mutatedTo = chunk.getMutationCount();
+        int lastCycle = cycleTables.length - 1;
+
+        for (int i = 0; i < read.length; i++) {
+            int cycle = Math.min(i, lastCycle);
+            int drawn = cycleTables[cycle].sample(roe.nextUniform());
+            qualities[qualityOffset + i] = cycleQualities[cycle][drawn];
+
+            if (roe.nextUniform() < cycleErrorProbabilities[cycle][drawn] && !isMutated(chunk, mutatedFrom, mutatedTo, i)) {
+                read[i] = roe.randomDifferentBase(read[i]);
+                chunk.addMutation(i, read[i]);
+            }
+        }
+        // keep the positions of the mate in ascending order like the mutations alone
+        if (chunk.getMutationCount() > mutatedTo && mutatedTo > mutatedFrom) chunk.sortMutations(mutatedFrom);
+    }
+
+    private static boolean isMutated(ReadGenerationEventChunk chunk, int from, int to, int position) {
+        for (int m = from; m < to; m++) {
+            if (chunk.mutationPositionAt(m) == position) return true;
+        }
+        return false;
+    }
+}
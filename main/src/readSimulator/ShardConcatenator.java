@@ -0,0 +1,105 @@
+package readSimulator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+Merges the fw/rw/mappinginfo shards of all writers into the single file layout.
+Chunks are copied with FileChannel.transferTo in read id order, so the merged files are the same no matter how
+chunks were distributed over the writers. BGZF shards end a block at every chunk boundary, so their chunks are
+concatenated the same way.
+ */
+public class ShardConcatenator {
+
+    // fw.fastq -> fw.shard3.fastq
+    public static Path shardPath(Path path, int shard) {
+        String fileName = path.getFileName().toString();
+        int dot = fileName.indexOf('.');
+        String shardName = dot < 0
+                ? fileName + ".shard" + shard
+                : fileName.substring(0, dot) + ".shard" + shard + fileName.substring(dot);
+        return path.resolveSibling(shardName);
+    }
+
+    /*
+    targets: merged forward, reverse and mappinginfo file
+    shards: shard files per writer, in the same order as targets
+    headerEnds: length of the header at the start of every shard file, copied once from the first shard
+     */
+    public static void concatenate(Path[] targets, Path[][] shards, long[] headerEnds, List<ChunkExtent> extents) throws IOException {
+        concatenate(targets, shards, headerEnds, extents, new byte[0]);
+    }
+
+    // trailer: appended to every merged file, the BGZF end of file block for compressed output
+    public static void concatenate(Path[] targets, Path[][] shards, long[] headerEnds, List<ChunkExtent> extents, byte[] trailer) throws IOException {
+        List<ChunkExtent> ordered = new ArrayList<>(extents);
+        ordered.sort(Comparator.comparingLong(ChunkExtent::firstReadId));
+
+        for (int file = 0; file < targets.length; file++) {
+            FileChannel[] shardChannels = new FileChannel[shards.length];
+            try (FileChannel target = FileChannel.open(targets[file],
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                for (int shard = 0; shard < shards.length; shard++) {
+                    shardChannels[shard] = FileChannel.open(shards[shard][file], StandardOpenOption.READ);
+                }
+
+                transferFully(shardChannels[0], shards[0][file], 0, headerEnds[file], target);
+
+                int i = 0;
+                while (i < ordered.size()) {
+                    // chunks that follow each other in the same shard are copied in one go
+                    ChunkExtent first = ordered.get(i);
+                    long end = first.end()[file];
+                    int j = i + 1;
+                    while (j < ordered.size()
+                            && ordered.get(j).shard() == first.shard()
+                            && ordered.get(j).start()[file] == end) {
+                        end = ordered.get(j).end()[file];
+                        j++;
+                    }
+                    transferFully(shardChannels[first.shard()], shards[first.shard()][file], first.start()[file], end, target);
+                    i = j;
+                }
+
+                ByteBuffer trailerBuffer = ByteBuffer.wrap(trailer);
+                while (trailerBuffer.hasRemaining()) {
+                    target.write(trailerBuffer);
+                }
+            } finally {
+                for (FileChannel channel : shardChannels) {
+                    if (channel != null) channel.close();
+                }
+            }
+        }
+
+        for (Path[] shardFiles : shards) {
+            for (Path shardFile : shardFiles) {
+                Files.deleteIfExists(shardFile);
+            }
+        }
+    }
+
+    // sourcePath only names the shard in the error message
+    private static void transferFully(FileChannel source, Path sourcePath, long from, long to, FileChannel target) throws IOException {
+        long position = from;
+        while (position < to) {
+            long transferred = source.transferTo(position, to - position, target);
+            // transferTo returns 0 at the end of the file, the shard is shorter than its recorded extents
+            if (transferred == 0) {
+                throw new IOException("Shard " + sourcePath + " ends at byte " + source.size()
+                        + ", before the recorded chunk end " + to);
+            }
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package readSimulator;
+
+/*
+Thrown to generators and writers waiting on the ChunkRingBuffer or the MemoryGovernor once the pipeline has been
+aborted, typically because a writer could not write any more (disk full, closed pipe). The cause is the failure that
+aborted the pipeline.
+ */
+public class SimulationAbortedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SimulationAbortedException(Throwable cause) {
+        super("Simulation aborted: " + cause, cause);
+    }
+}
@@ -0,0 +1,181 @@
+package readSimulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/*
+Counters and phase timings of one simulation run, with a periodic progress line and a JSON report at the end.
+
+Generators and writers only add to LongAdders, which keep a cell per contending thread, and only once per chunk, so
+counting never makes them wait for each other. Queue occupancy is sampled by the progress thread instead of being
+tracked on every hand-off.
+ */
+public class SimulationMetrics {
+    private final LongAdder readsGenerated = new LongAdder();
+    private final LongAdder chunksGenerated = new LongAdder();
+    private final LongAdder readsWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder producerBlockedNanos = new LongAdder();
+    private final LongAdder writerIdleNanos = new LongAdder();
+    // blocked nanos of the calling generator thread, lets the scheduler tell waiting apart from generating
+    private final ThreadLocal<long[]> threadBlockedNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    // phase name -> milliseconds, in the order the phases ran; only written by the simulation thread
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private volatile String phase = null;
+    private volatile long phaseStart = System.nanoTime();
+    private final long startNanos = System.nanoTime();
+    private volatile long totalReads = 0;
+
+    private long occupancySamples = 0;
+    private long occupancySum = 0;
+    private int peakOccupancy = 0;
+    private ScheduledExecutorService progress = null;
+
+    public void recordGenerated(int reads) {
+        readsGenerated.add(reads);
+        chunksGenerated.increment();
+    }
+
+    // bytes are counted before BGZF compression
+    public void recordWritten(int reads, long bytes) {
+        readsWritten.add(reads);
+        bytesWritten.add(bytes);
+    }
+
+    // time a generator waited for a free ring slot or for buffer budget
+    public void recordProducerBlocked(long nanos) {
+        producerBlockedNanos.add(nanos);
+        threadBlockedNanos.get()[0] += nanos;
+    }
+
+    // total time the calling thread has waited in recordProducerBlocked so far
+    public long getThreadBlockedNanos() {
+        return threadBlockedNanos.get()[0];
+    }
+
+    // time a writer waited for a published chunk
+    public void recordWriterIdle(long nanos) {
+        writerIdleNanos.add(nanos);
+    }
+
+    public void setTotalReads(long totalReads) {
+        this.totalReads = totalReads;
+    }
+
+    // ends the current phase, if any, and starts the named one
+    public synchronized void startPhase(String name) {
+        endPhase();
+        phase = name;
+        phaseStart = System.nanoTime();
+    }
+
+    public synchronized void endPhase() {
+        if (phase == null) return;
+        phaseMillis.merge(phase, (System.nanoTime() - phaseStart) / 1_000_000, Long::sum);
+        phase = null;
+    }
+
+    public long getReadsGenerated() {
+        return readsGenerated.sum();
+    }
+
+    public long getReadsWritten() {
+        return readsWritten.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /*
+    Prints a progress line every intervalSeconds until stopProgress, 0 keeps quiet: the current phase while preparing,
+    reads written, throughput and ETA once reads flow. queuedChunks is sampled every second for the occupancy
+    statistics of the report.
+     */
+    public void startProgress(long intervalSeconds, int slots, IntSupplier queuedChunks, LongSupplier bufferedBytes) {
+        progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] last = {System.nanoTime(), 0, 0};
+        progress.scheduleAtFixedRate(() -> {
+            int queued = queuedChunks.getAsInt();
+            sampleOccupancy(queued);
+            if (intervalSeconds <= 0 || ++last[2] % intervalSeconds != 0) return;
+
+            long now = System.nanoTime();
+            long written = readsWritten.sum();
+            String currentPhase = phase;
+            if (written == 0 || totalReads == 0) {
+                System.out.printf("▶ %s, %d s elapsed%n", currentPhase == null ? "working" : currentPhase.replace('_', ' '),
+                        (now - startNanos) / 1_000_000_000);
+                return;
+            }
+
+            double readsPerSecond = (written - last[1]) * 1e9 / Math.max(1, now - last[0]);
+            last[0] = now;
+            last[1] = written;
+            long remaining = Math.max(0, totalReads - written);
+            String eta = readsPerSecond > 0 ? formatSeconds((long) (remaining / readsPerSecond)) : "--:--:--";
+            System.out.printf("▶ %d/%d reads written (%.1f%%), %.0f reads/s, %d/%d chunks queued, %.1f MB buffered, ETA %s%n",
+                    written, totalReads, 100.0 * written / totalReads, readsPerSecond, queued, slots,
+                    bufferedBytes.getAsLong() / 1048576.0, eta);
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public void stopProgress() {
+        if (progress != null) progress.shutdownNow();
+    }
+
+    private synchronized void sampleOccupancy(int queued) {
+        occupancySamples++;
+        occupancySum += queued;
+        peakOccupancy = Math.max(peakOccupancy, queued);
+    }
+
+    private static String formatSeconds(long seconds) {
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    public synchronized void writeJson(Path path) throws IOException {
+        long totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        long written = readsWritten.sum();
+
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"total_ms\": ").append(totalMillis).append(",\n");
+        json.append("  \"phases_ms\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Long> entry : phaseMillis.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+            separator = ",\n";
+        }
+        json.append(phaseMillis.isEmpty() ? "},\n" : "\n  },\n");
+        json.append("  \"reads_total\": ").append(totalReads).append(",\n");
+        json.append("  \"reads_generated\": ").append(readsGenerated.sum()).append(",\n");
+        json.append("  \"chunks_generated\": ").append(chunksGenerated.sum()).append(",\n");
+        json.append("  \"reads_written\": ").append(written).append(",\n");
+        json.append("  \"bytes_written\": ").append(bytesWritten.sum()).append(",\n");
+        json.append("  \"reads_per_second\": ").append(String.format(Locale.ROOT, "%.1f",
+                totalMillis == 0 ? 0.0 : written * 1000.0 / totalMillis)).append(",\n");
+        json.append("  \"producer_blocked_ms\": ").append(producerBlockedNanos.sum() / 1_000_000).append(",\n");
+        json.append("  \"writer_idle_ms\": ").append(writerIdleNanos.sum() / 1_000_000).append(",\n");
+        json.append("  \"queue_occupancy\": {\"samples\": ").append(occupancySamples)
+                .append(", \"mean\": ").append(String.format(Locale.ROOT, "%.2f",
+                        occupancySamples == 0 ? 0.0 : (double) occupancySum / occupancySamples))
+                .append(", \"peak\": ").append(peakOccupancy).append("}\n");
+        json.append("}\n");
+        Files.writeString(path, json);
+    }
+}
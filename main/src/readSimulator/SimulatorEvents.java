@@ -0,0 +1,110 @@
+package readSimulator;
+
+import jdk.jfr.*;
+
+/*
+Java Flight Recorder events of the simulator, recorded with e.g.
+    java -XX:StartFlightRecording=filename=sim.jfr,settings=profile ... readSimulator.ReadSimulator ...
+and shown under "Read Simulator" in JDK Mission Control next to GC, I/O and thread events.
+
+Without a recording, begin() and shouldCommit() are cheap checks and the event objects do not escape, so the
+instrumented paths stay allocation free. Fields are only filled once an event will actually be committed.
+ */
+public final class SimulatorEvents {
+    private static final String CATEGORY = "Read Simulator";
+
+    private SimulatorEvents() {
+    }
+
+    @Name("readSimulator.TranscriptBuild")
+    @Label("Transcript Build")
+    @Description("Sequence of one transcript assembled from the exon bases of the FASTA range reads, reverse complemented and packed as needed")
+    @Category(CATEGORY)
+    static final class TranscriptBuild extends Event {
+        @Label("Transcript")
+        String transcriptId;
+
+        @Label("Chromosome")
+        String chromosome;
+
+        @Label("Exons")
+        int exonCount;
+
+        @Label("Bases")
+        @Description("Length of the assembled sequence; the FASTA reads behind it are FASTA Range Read events")
+        long bases;
+    }
+
+    @Name("readSimulator.FastaRangeRead")
+    @Label("FASTA Range Read")
+    @Description("One merged range of nearby exons read through IndexedFastaReader.seekSequence while building the transcriptome")
+    @Category(CATEGORY)
+    static final class FastaRangeRead extends Event {
+        @Label("Chromosome")
+        String chromosome;
+
+        @Label("Start")
+        long start;
+
+        @Label("End")
+        long end;
+
+        @Label("Exons")
+        int exonCount;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+    }
+
+    @Name("readSimulator.ChunkGeneration")
+    @Label("Chunk Generation")
+    @Description("Fragments, regions and mutations of one chunk of reads drawn from a transcript")
+    @Category(CATEGORY)
+    static final class ChunkGeneration extends Event {
+        @Label("Gene")
+        String geneId;
+
+        @Label("Transcript")
+        String transcriptId;
+
+        @Label("First Read Id")
+        long firstReadId;
+
+        @Label("Reads")
+        int readCount;
+    }
+
+    @Name("readSimulator.ChunkFlush")
+    @Label("Chunk Flush")
+    @Description("One chunk of read pairs encoded and written by an output writer")
+    @Category(CATEGORY)
+    static final class ChunkFlush extends Event {
+        @Label("Shard")
+        int shard;
+
+        @Label("First Read Id")
+        long firstReadId;
+
+        @Label("Reads")
+        int readCount;
+
+        @Label("Bytes Written")
+        @Description("Bytes encoded for the chunk, before BGZF compression")
+        @DataAmount
+        long bytesWritten;
+    }
+
+    @Name("readSimulator.QueueStall")
+    @Label("Queue Stall")
+    @Description("A generator waiting because all ring slots are taken or the buffer budget is used up")
+    @Category(CATEGORY)
+    static final class QueueStall extends Event {
+        @Label("Cause")
+        String cause;
+
+        @Label("Reads")
+        @Description("Reads of the chunk the generator is waiting to produce, 0 when waiting for a ring slot")
+        int readCount;
+    }
+}
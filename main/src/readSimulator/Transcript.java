@@ -1,17 +1,26 @@
 package readSimulator;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 public class Transcript {
+    private static final ReverseComplementKernel REVERSE_COMPLEMENT = ReverseComplementKernel.load();
+
     private final String transcriptId;
     private final String chromosome;
     private final List<Coordinates> exonRegions;
     private final char strand;
-    private byte[] sequence;
+    private NucleotideSequence sequence;
+
+    /*
+    Exon index in transcript orientation: exon k covers transcript positions exonOffsets[k] until exonOffsets[k + 1]
+    and the genomic positions exonStarts[k]..exonEnds[k]. Built together with the sequence.
+     */
+    private int[] exonOffsets;
+    private int[] exonStarts;
+    private int[] exonEnds;
 
     public Transcript(String transcriptId, String chromosome, char strand) {
         this.transcriptId = transcriptId;
@@ -24,228 +33,142 @@ public class Transcript {
         this.exonRegions.add(coordinates);
     }
 
-    public void buildSequence(IndexedFastaReader reader) {
-        if (!reader.isOpen()) {
-            System.out.println("Cannot build sequence for transcript " + transcriptId + " because reader channel is closed!");
-            return;
+    private void buildExonIndex() {
+        sortExonRegions();
+        int exonCount = exonRegions.size();
+        int[] offsets = new int[exonCount + 1];
+        int[] starts = new int[exonCount];
+        int[] ends = new int[exonCount];
+
+        for (int k = 0; k < exonCount; k++) {
+            // '-' strand transcripts start at the last base of the last exon
+            Coordinates exon = exonRegions.get(strand == '+' ? k : exonCount - 1 - k);
+            starts[k] = exon.coordinate1();
+            ends[k] = exon.coordinate2();
+            offsets[k + 1] = offsets[k] + ends[k] - starts[k] + 1;
         }
+
+        exonOffsets = offsets;
+        exonStarts = starts;
+        exonEnds = ends;
+    }
+
+    public void sortExonRegions() {
         exonRegions.sort(Comparator.comparingLong(Coordinates::coordinate1));
+    }
 
-        int seqLength = 0;
-        List<byte[]> exonVectors = new ArrayList<>();
+    public List<Coordinates> getExonRegions() {
+        return exonRegions;
+    }
 
-        try {
-            for (Coordinates coordinates : exonRegions) {
-                byte[] exonBytes = reader.seekSequence(chromosome, coordinates.coordinate1(), coordinates.coordinate2());
-                exonVectors.add(exonBytes);
-                seqLength += exonBytes.length;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        this.sequence = new byte[seqLength];
+    public char getStrand() {
+        return strand;
+    }
 
-        int seqPos = 0;
-        for (byte[] exonVector : exonVectors) {
-            System.arraycopy(exonVector, 0, this.sequence, seqPos, exonVector.length);
-            seqPos += exonVector.length;
-        }
+    public NucleotideSequence getSequence() {
+        return sequence;
+    }
 
-        if (strand == '-') reverseComplementInPlace(sequence);
+    // spliced sequence in transcript orientation, i.e. already reverse complemented for '-' strand transcripts
+    public void setSequence(NucleotideSequence sequence) {
+        this.sequence = sequence;
+        if (sequence != null && exonOffsets == null) buildExonIndex();
     }
 
     public static void reverseComplementInPlace(byte[] sequence) {
         if (sequence == null) return;
+        reverseComplementInPlace(sequence, 0, sequence.length);
+    }
 
-        int left = 0;
-        int right = sequence.length - 1;
-
-        while (left <= right) {
-            byte leftComplement = complement(sequence[left]);
-            byte rightComplement = complement(sequence[right]);
-
-            sequence[left] = rightComplement;
-            sequence[right] = leftComplement;
-
-            left++;
-            right--;
-        }
+    public static void reverseComplementInPlace(byte[] sequence, int offset, int length) {
+        REVERSE_COMPLEMENT.reverseComplement(sequence, offset, length);
     }
 
     public static byte complement(byte base) {
-        return switch (Character.toUpperCase((char) base)) {
-            case 'A' -> (byte) 'T';
-            case 'C' -> (byte) 'G';
-            case 'G' -> (byte) 'C';
-            case 'T', 'U' -> (byte) 'A';
-            default -> (byte) 'N';
-        };
+        return ScalarReverseComplement.complement(base);
     }
 
     public int length() {
-        return sequence.length;
+        return sequence.length();
     }
 
-    public List<ReadGenerationEvent> createEventsForTranscript(int[] fragmentLengths,
-                                                               int[] startingPositions,
-                                                               int readLength,
-                                                               double mutationRate,
-                                                               RandomOperationExecutor roe,
-                                                               String chromosome,
-                                                               String geneId) {
-        List<ReadGenerationEvent> events = new ArrayList<>();
-
-        for (int i = 0; i < fragmentLengths.length; i++) {
-            int plusStrandFirstIndex = startingPositions[i];
-            int plusStrandLastIndex = startingPositions[i] + readLength;
-
-            int minusStrandFirstIndex = startingPositions[i] + fragmentLengths[i] - readLength;
-            int minusStrandLastIndex = startingPositions[i] + fragmentLengths[i];
-
-            byte[] fwReadSequence = Arrays.copyOfRange(sequence,
-                    plusStrandFirstIndex,
-                    plusStrandLastIndex);
-
-            byte[] rwReadSequence = Arrays.copyOfRange(sequence,
-                    minusStrandFirstIndex,
-                    minusStrandLastIndex);
-
-            reverseComplementInPlace(rwReadSequence);
-
-            String transcriptForwardReadVector = plusStrandFirstIndex + "-" + plusStrandLastIndex;
-            String transcriptReverseReadVector = minusStrandFirstIndex + "-" + minusStrandLastIndex;
-
-            var genomicCoordinates = getGenomicCoordinates(plusStrandFirstIndex, plusStrandLastIndex, minusStrandFirstIndex, minusStrandLastIndex);
-
-            String genomicForwardReadVector = genomicCoordinates.get(0);
-            String genomicReverseReadVector = genomicCoordinates.get(1);
-
-
-            List<Integer> mutatedPositionsForwardRead = roe.mutateInPlace(fwReadSequence, mutationRate);
-            List<Integer> mutatedPositionsReverseRead = roe.mutateInPlace(rwReadSequence, mutationRate);
-
-            events.add(new ReadGenerationEvent(
-                    chromosome,
-                    geneId,
-                    transcriptId,
-                    fwReadSequence,
-                    rwReadSequence,
-                    genomicForwardReadVector,
-                    genomicReverseReadVector,
-                    transcriptForwardReadVector,
-                    transcriptReverseReadVector,
-                    mutatedPositionsForwardRead,
-                    mutatedPositionsReverseRead)
-            );
-        }
-        return events;
+    public String getTranscriptId() {
+        return transcriptId;
     }
 
-    private List<String> getGenomicCoordinates(int fwFirst,
-                                               int fwLast,
-                                               int rwFirst,
-                                               int rwLast) {
-
-        // Convert to inclusive last indices in transcript coordinates
-        int fwLastInclusive = fwLast - 1;
-        int rwLastInclusive = rwLast - 1;
-
-        List<Coordinates> fwRegions = new ArrayList<>();
-        List<Coordinates> rwRegions = new ArrayList<>();
-
-        if (strand == '+') {
-            int transcriptPos = 0; // start of current exon in transcript coordinates
-
-            for (Coordinates exon : exonRegions) {
-
-                int exonStart = exon.coordinate1();
-                int exonEnd = exon.coordinate2();
-                int exonLen = exonEnd - exonStart + 1;
-
-                int exonT0 = transcriptPos;
-                int exonT1 = transcriptPos + exonLen - 1;
-
-                if (fwLastInclusive >= exonT0 && fwFirst <= exonT1) {
-
-                    int overlapStartT = Math.max(fwFirst, exonT0);
-                    int overlapEndT = Math.min(fwLastInclusive, exonT1);
-
-                    int genomicStart = exonStart + (overlapStartT - exonT0);
-                    int genomicEnd = exonStart + (overlapEndT - exonT0);
-
-                    fwRegions.add(new Coordinates(genomicStart, genomicEnd));
-                }
-
-                if (rwLastInclusive >= exonT0 && rwFirst <= exonT1) {
-
-                    int overlapStartT = Math.max(rwFirst, exonT0);
-                    int overlapEndT = Math.min(rwLastInclusive, exonT1);
+    public String getChromosome() {
+        return chromosome;
+    }
 
-                    int genomicStart = exonStart + (overlapStartT - exonT0);
-                    int genomicEnd = exonStart + (overlapEndT - exonT0);
+    public void copyForwardRead(int first, byte[] destination) {
+        sequence.copy(first, destination, 0, destination.length);
+    }
 
-                    rwRegions.add(new Coordinates(genomicStart, genomicEnd));
-                }
+    public void copyReverseRead(int lastExclusive, byte[] destination) {
+        sequence.copyReverseComplement(lastExclusive - destination.length, destination, 0, destination.length);
+    }
 
-                transcriptPos += exonLen;
+    public void createEventsForTranscript(ReadGenerationEventChunk chunk,
+                                          long firstReadIndex,
+                                          double mutationRate,
+                                          SequencingErrorModel errorModel,
+                                          RandomOperationExecutor roe) {
+        int readLength = chunk.getReadLength();
+        byte[] read = new byte[readLength];
+
+        for (int i = 0; i < chunk.size(); i++) {
+            int plusStrandFirstIndex = chunk.getStartPosition(i);
+            int plusStrandLastIndex = plusStrandFirstIndex + readLength;
+
+            int minusStrandFirstIndex = plusStrandFirstIndex + chunk.getFragmentLength(i) - readLength;
+            int minusStrandLastIndex = plusStrandFirstIndex + chunk.getFragmentLength(i);
+
+            roe.seekMutationStream(firstReadIndex + i);
+
+            addGenomicCoordinates(plusStrandFirstIndex, plusStrandLastIndex, chunk);
+            copyForwardRead(plusStrandFirstIndex, read);
+            int mutationsFrom = chunk.getMutationCount();
+            roe.mutateInPlace(read, mutationRate, chunk);
+            if (errorModel != null) {
+                errorModel.apply(read, chunk.getQualities(), chunk.forwardQualityOffset(i), mutationsFrom, chunk, roe);
             }
-        } else {
-            // Transcript sequence is reverse-complemented, so transcript coordinate 0
-            // corresponds to the last base of the last exon.
-            int transcriptPos = 0;
-
-            for (int i = exonRegions.size() - 1; i >= 0; i--) {
-                Coordinates exon = exonRegions.get(i);
-
-                int exonStart = exon.coordinate1();
-                int exonEnd = exon.coordinate2();
-                int exonLen = exonEnd - exonStart + 1;
-
-                int exonT0 = transcriptPos;
-                int exonT1 = transcriptPos + exonLen - 1;
-
-                if (fwLastInclusive >= exonT0 && fwFirst <= exonT1) {
-                    int overlapStartT = Math.max(fwFirst, exonT0);
-                    int overlapEndT = Math.min(fwLastInclusive, exonT1);
-
-                    int genomicStart = exonEnd - (overlapStartT - exonT0);
-                    int genomicEnd = exonEnd - (overlapEndT - exonT0);
-
-                    fwRegions.add(new Coordinates(Math.min(genomicStart, genomicEnd), Math.max(genomicStart, genomicEnd)));
-                }
-
-                if (rwLastInclusive >= exonT0 && rwFirst <= exonT1) {
-                    int overlapStartT = Math.max(rwFirst, exonT0);
-                    int overlapEndT = Math.min(rwLastInclusive, exonT1);
-
-                    int genomicStart = exonEnd - (overlapStartT - exonT0);
-                    int genomicEnd = exonEnd - (overlapEndT - exonT0);
-
-                    rwRegions.add(new Coordinates(Math.min(genomicStart, genomicEnd), Math.max(genomicStart, genomicEnd)));
-                }
-
-                transcriptPos += exonLen;
+            chunk.closeForwardMate(i);
+
+            addGenomicCoordinates(minusStrandFirstIndex, minusStrandLastIndex, chunk);
+            copyReverseRead(minusStrandLastIndex, read);
+            mutationsFrom = chunk.getMutationCount();
+            roe.mutateInPlace(read, mutationRate, chunk);
+            if (errorModel != null) {
+                errorModel.apply(read, chunk.getQualities(), chunk.reverseQualityOffset(i), mutationsFrom, chunk, roe);
             }
+            chunk.closeReverseMate(i);
         }
-
-        String fwString = coordsToString(fwRegions);
-        String rwString = coordsToString(rwRegions);
-
-        return List.of(fwString, rwString);
     }
 
-    private static String coordsToString(List<Coordinates> list) {
-        if (list.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        for (Coordinates c : list) {
-            sb.append(c.coordinate1())
-                    .append("-")
-                    .append(c.coordinate2())
-                    .append("|");
+    /*
+    Project the transcript range first..last-1 onto the genome. The first overlapped exon is found by binary search in
+    the exon offsets, the regions are written straight into the chunk.
+     */
+    private void addGenomicCoordinates(int first, int last, ReadGenerationEventChunk chunk) {
+        int lastInclusive = last - 1;
+        int exonCount = exonStarts.length;
+
+        int k = Arrays.binarySearch(exonOffsets, 0, exonCount, first);
+        if (k < 0) k = Math.max(0, -k - 2);
+        // skip empty exons sharing the offset
+        while (k + 1 < exonCount && exonOffsets[k + 1] <= first) k++;
+
+        for (; k < exonCount && exonOffsets[k] <= lastInclusive; k++) {
+            int exonT0 = exonOffsets[k];
+            int overlapStartT = Math.max(first, exonT0);
+            int overlapEndT = Math.min(lastInclusive, exonOffsets[k + 1] - 1);
+            if (overlapStartT > overlapEndT) continue;
+
+            if (strand == '+') {
+                chunk.addRegion(exonStarts[k] + (overlapStartT - exonT0), exonStarts[k] + (overlapEndT - exonT0));
+            } else {
+                chunk.addRegion(exonEnds[k] - (overlapEndT - exonT0), exonEnds[k] - (overlapStartT - exonT0));
+            }
         }
-        sb.setLength(sb.length() - 1); // remove final "|"
-        return sb.toString();
     }
-
-
-}
\ No newline at end of file
+}
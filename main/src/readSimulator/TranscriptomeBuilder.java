@@ -0,0 +1,220 @@
+package readSimulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/*
+Builds all transcript sequences in one pass over the FASTA file.
+Instead of one random seek per exon, the exon requests of all transcripts are sorted by their byte offset in the
+FASTA, overlapping or nearby exons are merged into larger ranges and every range is read once. Ranges are processed
+in parallel and their bases are copied into the pre-allocated transcript sequences.
+ */
+public class TranscriptomeBuilder {
+    // exons closer than this are fetched together, reading a few extra bases is cheaper than another seek
+    private static final int MAX_MERGE_GAP = 1024;
+    // upper bound for the bases fetched by a single range so the read buffers stay small
+    private static final int MAX_RANGE_BASES = 1 << 22;
+
+    private final IndexedFastaReader reader;
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder sequenceBytes = new LongAdder();
+    private boolean packedSequences = false;
+    private int rangeCount;
+    private long buildMillis;
+
+    private record ExonRequest(byte[] destination, int destinationOffset, long start, long end) {}
+
+    private record FetchRange(String chromosome, long fileOffset, long start, long end, List<ExonRequest> requests) {}
+
+    public TranscriptomeBuilder(IndexedFastaReader reader) {
+        this.reader = reader;
+    }
+
+    // store sequences with 2 bits per base instead of one byte, see PackedSequence
+    public void setPackedSequences(boolean packedSequences) {
+        this.packedSequences = packedSequences;
+    }
+
+    public void build(Collection<Gene> genes) {
+        long startTime = System.nanoTime();
+
+        List<Transcript> transcripts = new ArrayList<>();
+        for (Gene gene : genes) {
+            transcripts.addAll(gene.getTranscripts());
+        }
+
+        List<byte[]> sequences = new ArrayList<>();
+        List<FetchRange> ranges = mergeRanges(collectRequests(transcripts, sequences));
+        ranges.sort(Comparator.comparingLong(FetchRange::fileOffset));
+        rangeCount = ranges.size();
+
+        ranges.parallelStream().forEach(this::fetch);
+
+        IntStream.range(0, transcripts.size()).parallel().forEach(i -> {
+            SimulatorEvents.TranscriptBuild event = new SimulatorEvents.TranscriptBuild();
+            event.begin();
+            Transcript transcript = transcripts.get(i);
+            int length = sequences.get(i).length;
+            if (transcript.getStrand() == '-') Transcript.reverseComplementInPlace(sequences.get(i));
+            if (packedSequences) {
+                PackedSequence packed = PackedSequence.pack(sequences.get(i));
+                sequenceBytes.add(packed.storedBytes());
+                transcript.setSequence(packed);
+                // the unpacked bases are garbage from here on
+                sequences.set(i, null);
+            } else {
+                sequenceBytes.add(length);
+                transcript.setSequence(new ByteArraySequence(sequences.get(i)));
+            }
+
+            if (event.shouldCommit()) {
+                event.transcriptId = transcript.getTranscriptId();
+                event.chromosome = transcript.getChromosome();
+                event.exonCount = transcript.getExonRegions().size();
+                event.bases = length;
+                event.commit();
+            }
+        });
+
+        buildMillis = (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    // exon requests per chromosome, sorted by start position
+    private Map<String, List<ExonRequest>> collectRequests(List<Transcript> transcripts, List<byte[]> sequences) {
+        Map<String, List<ExonRequest>> requestsByChromosome = new LinkedHashMap<>();
+
+        for (Transcript transcript : transcripts) {
+            transcript.sortExonRegions();
+            long chromosomeLength = chromosomeLength(reader, transcript);
+            byte[] sequence = new byte[sequenceLength(reader, transcript)];
+            sequences.add(sequence);
+
+            List<ExonRequest> requests = requestsByChromosome.computeIfAbsent(transcript.getChromosome(), k -> new ArrayList<>());
+            int offset = 0;
+            for (Coordinates exon : transcript.getExonRegions()) {
+                int exonLength = clippedLength(exon, chromosomeLength);
+                if (exonLength == 0) continue;
+                requests.add(new ExonRequest(sequence, offset, exon.coordinate1(), exon.coordinate1() + exonLength - 1));
+                offset += exonLength;
+            }
+        }
+
+        requestsByChromosome.values().removeIf(List::isEmpty);
+        for (List<ExonRequest> requests : requestsByChromosome.values()) {
+            requests.sort(Comparator.comparingLong(ExonRequest::start));
+        }
+        return requestsByChromosome;
+    }
+
+    // length of the sequence a transcript will get, known before anything is read from the FASTA
+    public static int sequenceLength(IndexedFastaReader reader, Transcript transcript) {
+        long chromosomeLength = chromosomeLength(reader, transcript);
+
+        // exons running past the chromosome end are cut short: the FASTA has no bases there, so the transcript
+        // simply ends with the last base of the chromosome
+        int length = 0;
+        for (Coordinates exon : transcript.getExonRegions()) {
+            length += clippedLength(exon, chromosomeLength);
+        }
+        return length;
+    }
+
+    private static long chromosomeLength(IndexedFastaReader reader, Transcript transcript) {
+        FastaIndexEntry indexEntry = reader.getIndexEntry(transcript.getChromosome());
+        return indexEntry == null ? 0 : indexEntry.seqLength();
+    }
+
+    private static int clippedLength(Coordinates exon, long chromosomeLength) {
+        return (int) Math.max(0, Math.min(exon.coordinate2(), chromosomeLength) - exon.coordinate1() + 1);
+    }
+
+    private List<FetchRange> mergeRanges(Map<String, List<ExonRequest>> requestsByChromosome) {
+        List<FetchRange> ranges = new ArrayList<>();
+
+        for (Map.Entry<String, List<ExonRequest>> entry : requestsByChromosome.entrySet()) {
+            String chromosome = entry.getKey();
+            List<ExonRequest> requests = entry.getValue();
+            FastaIndexEntry indexEntry = reader.getIndexEntry(chromosome);
+
+            List<ExonRequest> current = new ArrayList<>();
+            long start = requests.get(0).start();
+            long end = requests.get(0).end();
+
+            for (ExonRequest request : requests) {
+                boolean fits = request.start() <= end + 1 + MAX_MERGE_GAP
+                        && Math.max(end, request.end()) - start + 1 <= MAX_RANGE_BASES;
+                if (!current.isEmpty() && !fits) {
+                    ranges.add(new FetchRange(chromosome, fileOffset(indexEntry, start), start, end, current));
+                    current = new ArrayList<>();
+                    start = request.start();
+                    end = request.end();
+                }
+                current.add(request);
+                end = Math.max(end, request.end());
+            }
+            ranges.add(new FetchRange(chromosome, fileOffset(indexEntry, start), start, end, current));
+        }
+        return ranges;
+    }
+
+    private void fetch(FetchRange range) {
+        SimulatorEvents.FastaRangeRead event = new SimulatorEvents.FastaRangeRead();
+        event.begin();
+        byte[] bases = new byte[(int) (range.end() - range.start() + 1)];
+        try {
+            reader.seekSequence(range.chromosome(), range.start(), range.end(), bases, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        FastaIndexEntry indexEntry = reader.getIndexEntry(range.chromosome());
+        long rangeBytes = fileOffset(indexEntry, range.end()) - range.fileOffset() + 1;
+        bytesRead.add(rangeBytes);
+
+        for (ExonRequest request : range.requests()) {
+            System.arraycopy(bases, (int) (request.start() - range.start()),
+                    request.destination(), request.destinationOffset(),
+                    (int) (request.end() - request.start() + 1));
+        }
+
+        if (event.shouldCommit()) {
+            event.chromosome = range.chromosome();
+            event.start = range.start();
+            event.end = range.end();
+            event.exonCount = range.requests().size();
+            event.bytesRead = rangeBytes;
+            event.commit();
+        }
+    }
+
+    // byte offset of a 1-based position in the FASTA file
+    private static long fileOffset(FastaIndexEntry indexEntry, long position) {
+        return indexEntry.offset()
+                + ((position - 1) / indexEntry.lineBases()) * indexEntry.lineWidth()
+                + ((position - 1) % indexEntry.lineBases());
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getSequenceBytes() {
+        return sequenceBytes.sum();
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+}
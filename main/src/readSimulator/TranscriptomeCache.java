@@ -0,0 +1,187 @@
+package readSimulator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+Binary snapshot of built transcripts so later runs can skip GTF parsing and FASTA extraction.
+
+Layout:
+  int magic, int version
+  long gtf size, long gtf modification time, long fasta size, long fasta modification time
+  int metadata length, metadata
+  concatenated transcript sequences in transcript orientation
+
+Metadata holds the transcript ids requested when the snapshot was written, then per gene the gene id, chromosome and
+transcripts, per transcript its id, strand, exon coordinates and the offset and length of its sequence in the sequence
+section. The sequence section is memory-mapped on load, so the bases stay off the Java heap.
+ */
+public class TranscriptomeCache {
+    private static final int MAGIC = 0x52535443;
+    private static final int VERSION = 1;
+    // transcripts are grouped into mappings of at most this size, a transcript never spans two mappings
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    private final Path cachePath;
+    private final long[] fingerprint;
+
+    public TranscriptomeCache(Path cachePath, Path gtfPath, Path fastaPath) throws IOException {
+        this.cachePath = cachePath;
+        this.fingerprint = new long[]{
+                Files.size(gtfPath), Files.getLastModifiedTime(gtfPath).toMillis(),
+                Files.size(fastaPath), Files.getLastModifiedTime(fastaPath).toMillis()
+        };
+    }
+
+    /*
+    Returns the genes of the snapshot restricted to the requested transcripts, or null if there is no snapshot, it was
+    made from a different GTF or FASTA file or was written for a set of transcripts not covering the requested ones.
+     */
+    public List<Gene> load(Set<String> relevantTranscriptIds) throws IOException {
+        if (!Files.exists(cachePath)) return null;
+
+        byte[] metadata;
+        long sequenceSectionStart;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            for (long expected : fingerprint) {
+                if (in.readLong() != expected) return null;
+            }
+            metadata = new byte[in.readInt()];
+            in.readFully(metadata);
+            sequenceSectionStart = 4 + 4 + 8L * fingerprint.length + 4 + metadata.length;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata));
+
+        // the snapshot only holds the transcripts requested when it was written, later runs may only ask for a subset
+        int requestedCount = in.readInt();
+        Set<String> requested = new HashSet<>();
+        for (int i = 0; i < requestedCount; i++) {
+            requested.add(in.readUTF());
+        }
+        if (!requested.containsAll(relevantTranscriptIds)) return null;
+
+        List<Gene> genes = new ArrayList<>();
+        List<Transcript> transcripts = new ArrayList<>();
+        List<long[]> sequenceLocations = new ArrayList<>();
+
+        int geneCount = in.readInt();
+        for (int g = 0; g < geneCount; g++) {
+            Gene gene = new Gene(in.readUTF(), in.readUTF());
+            int transcriptCount = in.readInt();
+            for (int t = 0; t < transcriptCount; t++) {
+                String transcriptId = in.readUTF();
+                char strand = (char) in.readByte();
+                int exonCount = in.readInt();
+                Coordinates[] exons = new Coordinates[exonCount];
+                for (int e = 0; e < exonCount; e++) {
+                    exons[e] = new Coordinates(in.readInt(), in.readInt());
+                }
+                long sequenceOffset = in.readLong();
+                int sequenceLength = in.readInt();
+
+                if (!relevantTranscriptIds.contains(transcriptId)) continue;
+                gene.makeTranscript(transcriptId, strand);
+                Transcript transcript = gene.getTranscript(transcriptId);
+                for (Coordinates exon : exons) {
+                    transcript.addCoordinates(exon);
+                }
+                transcripts.add(transcript);
+                sequenceLocations.add(new long[]{sequenceOffset, sequenceLength});
+            }
+            if (!gene.getTranscripts().isEmpty()) genes.add(gene);
+        }
+
+        mapSequences(sequenceSectionStart, transcripts, sequenceLocations);
+        return genes;
+    }
+
+    private void mapSequences(long sectionStart, List<Transcript> transcripts, List<long[]> locations) throws IOException {
+        try (FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ)) {
+            ByteBuffer mapping = null;
+            long mappingStart = 0;
+            long mappingEnd = -1;
+
+            for (int i = 0; i < transcripts.size(); i++) {
+                long offset = locations.get(i)[0];
+                int length = (int) locations.get(i)[1];
+
+                if (mapping == null || offset < mappingStart || offset + length > mappingEnd) {
+                    mappingStart = offset;
+                    mappingEnd = Math.min(channel.size() - sectionStart, offset + Math.max(length, MAX_MAPPING_BYTES));
+                    mapping = channel.map(FileChannel.MapMode.READ_ONLY, sectionStart + mappingStart, mappingEnd - mappingStart);
+                }
+                transcripts.get(i).setSequence(new MappedSequence(mapping, (int) (offset - mappingStart), length));
+            }
+        }
+    }
+
+    public void write(Collection<String> requestedTranscriptIds, Collection<Gene> genes) throws IOException {
+        List<Gene> sortedGenes = new ArrayList<>(genes);
+        sortedGenes.sort(Comparator.comparing(Gene::getGeneId));
+
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(metadataBytes);
+        List<Transcript> ordered = new ArrayList<>();
+        long sequenceOffset = 0;
+
+        List<String> requested = new ArrayList<>(requestedTranscriptIds);
+        Collections.sort(requested);
+        metadata.writeInt(requested.size());
+        for (String transcriptId : requested) {
+            metadata.writeUTF(transcriptId);
+        }
+
+        metadata.writeInt(sortedGenes.size());
+        for (Gene gene : sortedGenes) {
+            List<Transcript> transcripts = new ArrayList<>(gene.getTranscripts());
+            transcripts.sort(Comparator.comparing(Transcript::getTranscriptId));
+
+            metadata.writeUTF(gene.getGeneId());
+            metadata.writeUTF(gene.getChromosome());
+            metadata.writeInt(transcripts.size());
+            for (Transcript transcript : transcripts) {
+                metadata.writeUTF(transcript.getTranscriptId());
+                metadata.writeByte(transcript.getStrand());
+                metadata.writeInt(transcript.getExonRegions().size());
+                for (Coordinates exon : transcript.getExonRegions()) {
+                    metadata.writeInt(exon.coordinate1());
+                    metadata.writeInt(exon.coordinate2());
+                }
+                metadata.writeLong(sequenceOffset);
+                metadata.writeInt(transcript.length());
+                sequenceOffset += transcript.length();
+                ordered.add(transcript);
+            }
+        }
+        metadata.flush();
+
+        Path temporary = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (long value : fingerprint) {
+                out.writeLong(value);
+            }
+            out.writeInt(metadataBytes.size());
+            metadataBytes.writeTo(out);
+
+            byte[] buffer = new byte[1 << 16];
+            for (Transcript transcript : ordered) {
+                NucleotideSequence sequence = transcript.getSequence();
+                for (int from = 0; from < sequence.length(); from += buffer.length) {
+                    int length = Math.min(buffer.length, sequence.length() - from);
+                    sequence.copy(from, buffer, 0, length);
+                    out.write(buffer, 0, length);
+                }
+            }
+        }
+        Files.move(temporary, cachePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+}
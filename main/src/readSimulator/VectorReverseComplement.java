@@ -0,0 +1,51 @@
+package readSimulator;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+Reverse complement with the incubating Vector API: one vector from each end of the range is complemented by lane
+compares and blends, reversed by a shuffle and stored at the opposite end. The middle that is shorter than two vectors
+is left to the scalar kernel. Only referenced through ReverseComplementKernel.load.
+ */
+public class VectorReverseComplement implements ReverseComplementKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorShuffle<Byte> REVERSE = VectorShuffle.fromOp(SPECIES, i -> SPECIES.length() - 1 - i);
+    // setting this bit turns the upper case letters into lower case and leaves the lower case ones alone
+    private static final byte LOWER_CASE_BIT = 0x20;
+
+    private final ScalarReverseComplement scalar = new ScalarReverseComplement();
+
+    @Override
+    public void reverseComplement(byte[] sequence, int offset, int length) {
+        int lanes = SPECIES.length();
+        int left = offset;
+        int right = offset + length;
+
+        while (right - left >= 2 * lanes) {
+            ByteVector head = ByteVector.fromArray(SPECIES, sequence, left);
+            ByteVector tail = ByteVector.fromArray(SPECIES, sequence, right - lanes);
+            reverseComplement(tail).intoArray(sequence, left);
+            reverseComplement(head).intoArray(sequence, right - lanes);
+            left += lanes;
+            right -= lanes;
+        }
+        scalar.reverseComplement(sequence, left, right - left);
+    }
+
+    private static ByteVector reverseComplement(ByteVector bases) {
+        ByteVector lowerCase = bases.or(LOWER_CASE_BIT);
+        VectorMask<Byte> isT = lowerCase.compare(VectorOperators.EQ, (byte) 't')
+                .or(lowerCase.compare(VectorOperators.EQ, (byte) 'u'));
+
+        return ByteVector.broadcast(SPECIES, (byte) 'N')
+                .blend((byte) 'T', lowerCase.compare(VectorOperators.EQ, (byte) 'a'))
+                .blend((byte) 'G', lowerCase.compare(VectorOperators.EQ, (byte) 'c'))
+                .blend((byte) 'C', lowerCase.compare(VectorOperators.EQ, (byte) 'g'))
+                .blend((byte) 'A', isT)
+                .rearrange(REVERSE);
+    }
+}
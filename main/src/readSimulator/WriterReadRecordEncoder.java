@@ -0,0 +1,161 @@
+package readSimulator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/*
+Character based encoder writing through BufferedWriter/OutputStreamWriter.
+Kept for comparison with AsciiReadRecordEncoder, enabled with -legacywriter.
+ */
+public class WriterReadRecordEncoder implements ReadRecordEncoder {
+    private final CountingWriter forwardWriter;
+    private final CountingWriter reverseWriter;
+    private final CountingWriter mappingInfoWriter;
+    private final FileOutputStream[] outputStreams;
+    private final String QUALITY_STRING;
+
+    public WriterReadRecordEncoder(Path fwFilePath, Path rwFilePath, Path mappingInfoPath, int readLength) throws IOException {
+        this.outputStreams = new FileOutputStream[]{
+                new FileOutputStream(fwFilePath.toFile()),
+                new FileOutputStream(rwFilePath.toFile()),
+                new FileOutputStream(mappingInfoPath.toFile())
+        };
+        this.forwardWriter = new CountingWriter(new OutputStreamWriter(outputStreams[0], StandardCharsets.UTF_8), 1 << 16);
+        this.reverseWriter = new CountingWriter(new OutputStreamWriter(outputStreams[1], StandardCharsets.UTF_8), 1 << 16);
+        this.mappingInfoWriter = new CountingWriter(new OutputStreamWriter(outputStreams[2], StandardCharsets.UTF_8), 1 << 16);
+        this.QUALITY_STRING = "I".repeat(readLength);
+    }
+
+    @Override
+    public void makeHeaders() throws IOException {
+        mappingInfoWriter.write(MAPPING_INFO_HEADER);
+        mappingInfoWriter.newLine();
+    }
+
+    @Override
+    public void writeReadPair(long id, ReadGenerationEventChunk chunk, int read, byte[] forwardRead, byte[] reverseRead) throws IOException {
+        if (chunk.hasQualities()) {
+            writeFastqEntry(forwardWriter, id, forwardRead,
+                    new String(chunk.getQualities(), chunk.forwardQualityOffset(read), forwardRead.length, StandardCharsets.US_ASCII));
+            writeFastqEntry(reverseWriter, id, reverseRead,
+                    new String(chunk.getQualities(), chunk.reverseQualityOffset(read), reverseRead.length, StandardCharsets.US_ASCII));
+        } else {
+            writeFastqEntry(forwardWriter, id, forwardRead);
+            writeFastqEntry(reverseWriter, id, reverseRead);
+        }
+        writeMappingInfoEvent(mappingInfoWriter, id, chunk, read);
+    }
+
+    @Override
+    public long[] getOutputPositions() throws IOException {
+        forwardWriter.flush();
+        reverseWriter.flush();
+        mappingInfoWriter.flush();
+        return new long[]{
+                outputStreams[0].getChannel().position(),
+                outputStreams[1].getChannel().position(),
+                outputStreams[2].getChannel().position()
+        };
+    }
+
+    @Override
+    public long getBytesEncoded() {
+        return forwardWriter.count + reverseWriter.count + mappingInfoWriter.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        forwardWriter.close();
+        reverseWriter.close();
+        mappingInfoWriter.close();
+    }
+
+    public void writeFastqEntry(BufferedWriter writer, long id, byte[] seq) throws IOException {
+        writeFastqEntry(writer, id, seq, QUALITY_STRING);
+    }
+
+    public void writeFastqEntry(BufferedWriter writer, long id, byte[] seq, String qualities) throws IOException {
+        writer.write("@");
+        writer.write(Long.toString(id));
+        writer.newLine();
+        writer.write(new String(seq));
+        writer.newLine();
+        writer.write('+');
+        writer.write(Long.toString(id));
+        writer.newLine();
+        writer.write(qualities);
+        writer.newLine();
+    }
+
+    public void writeMappingInfoEvent(BufferedWriter writer, long id, ReadGenerationEventChunk chunk, int read) throws IOException {
+        Transcript transcript = chunk.getTranscript();
+        int fwFirst = chunk.getStartPosition(read);
+        int rwLast = fwFirst + chunk.getFragmentLength(read);
+        int readLength = chunk.getReadLength();
+
+        writer.write(Long.toString(id));
+        writer.write("\t");
+        writer.write(transcript.getChromosome());
+        writer.write("\t");
+        writer.write(chunk.getGeneId());
+        writer.write("\t");
+        writer.write(transcript.getTranscriptId());
+        writer.write("\t");
+        writeRegions(writer, chunk, chunk.forwardRegionsFrom(read), chunk.forwardRegionsTo(read));
+        writer.write("\t");
+        writeRegions(writer, chunk, chunk.reverseRegionsFrom(read), chunk.reverseRegionsTo(read));
+        writer.write("\t");
+        writer.write(fwFirst + "-" + (fwFirst + readLength));
+        writer.write("\t");
+        writer.write((rwLast - readLength) + "-" + rwLast);
+        writer.write("\t");
+        writeMutations(writer, chunk, chunk.forwardMutationsFrom(read), chunk.forwardMutationsTo(read));
+        writer.write("\t");
+        writeMutations(writer, chunk, chunk.reverseMutationsFrom(read), chunk.reverseMutationsTo(read));
+        writer.newLine();
+    }
+
+    private static void writeRegions(BufferedWriter writer, ReadGenerationEventChunk chunk, int from, int to) throws IOException {
+        for (int i = from; i < to; i += 2) {
+            if (i != from) writer.write('|');
+            writer.write(Integer.toString(chunk.regionAt(i)));
+            writer.write('-');
+            writer.write(Integer.toString(chunk.regionAt(i + 1)));
+        }
+    }
+
+    private static void writeMutations(BufferedWriter writer, ReadGenerationEventChunk chunk, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (i != from) writer.write(',');
+            writer.write(Integer.toString(chunk.mutationPositionAt(i)));
+        }
+    }
+
+    // BufferedWriter counting the characters written to it, each is one byte as everything written is ASCII
+    private static final class CountingWriter extends BufferedWriter {
+        private long count = 0;
+
+        CountingWriter(Writer out, int size) {
+            super(out, size);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            super.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            super.write(chars, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            super.write(string, offset, length);
+            count += length;
+        }
+    }
+}